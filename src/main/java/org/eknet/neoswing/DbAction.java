@@ -21,11 +21,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.SwingWorker;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
+ * Runs {@link #doInTx(GraphModel)} within a transaction in the background.
+ * Actions are executed by {@link GraphModel#execute(DbAction)} on the
+ * {@link DbScheduler} of the database, according to {@link #getPriority()}.
+ *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 15.11.12 20:35
  */
@@ -43,6 +48,29 @@ public abstract class DbAction<A, B> extends SwingWorker<A, B> {
     this.model = model;
   }
 
+  /**
+   * Returns the priority this action is scheduled with. This is
+   * {@link DbScheduler.Priority#INTERACTIVE} by default; long running
+   * actions should return {@link DbScheduler.Priority#BULK}.
+   *
+   * @return
+   */
+  public DbScheduler.Priority getPriority() {
+    return DbScheduler.Priority.INTERACTIVE;
+  }
+
+  /**
+   * Returns the key of this action or {@code null}. If an action with a key
+   * is executed, a queued or running action with an equal key is cancelled.
+   * Actions should check {@link #isCancelled()} in their loops, so that they
+   * stop once they have been superseded.
+   *
+   * @return
+   */
+  public Object getCoalesceKey() {
+    return null;
+  }
+
   @Override
   protected final A doInBackground() throws Exception {
     GraphDb.Tx tx = getModel().getDatabase().beginTx();
@@ -70,6 +98,8 @@ public abstract class DbAction<A, B> extends SwingWorker<A, B> {
     } catch (ExecutionException e) {
       log.error("Error while executing worker!", e.getCause());
       Dialogs.error(null, e.getCause().getMessage());
+    } catch (CancellationException e) {
+      log.debug("Db action has been cancelled");
     } catch (TimeoutException e) {
       log.error("Timeout while waiting for result!", e);
       Dialogs.error(null, e.getMessage());
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import org.eknet.neoswing.utils.Dialogs;
+import org.eknet.neoswing.utils.EdtExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the {@link DbAction}s and background tasks of one database.
+ * <p/>
+ * There is a thread pool for each {@link Priority}, so that long running
+ * jobs do not delay the loads of the user interface, and the actions of
+ * one database do not delay those of another. The queues are bounded: if
+ * the queue of interactive, query or bulk actions is full, the new action is
+ * cancelled and the user is told so; if the queue of prefetches is full, the
+ * oldest queued action is cancelled. Actions with a coalesce key supersede
+ * the previous action with that key. Listeners are notified when the number
+ * of queued or running tasks changes.
+ * <p/>
+ * Tasks are never interrupted, neither when they are cancelled nor on
+ * shutdown, as some backends close their store files when a thread is
+ * interrupted inside a transaction. Cancelled tasks must check for it
+ * themselves and stop at the next convenient point. Other background
+ * threads of NeoSwing follow the same rule.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 14:10
+ */
+public class DbScheduler {
+  private static final Logger log = LoggerFactory.getLogger(DbScheduler.class);
+
+  public static enum Priority {
+    /**
+     * Loads the user is waiting for, like the properties of the selected element.
+     */
+    INTERACTIVE(3, 256),
+
+    /**
+     * Speculative loads, like labels and neighborhoods.
+     */
+    PREFETCH(2, 64),
+
+    /**
+     * Queries the user started and waits for, like searches and path finding.
+     */
+    QUERY(2, 16),
+
+    /**
+     * Long running jobs, like imports and exports.
+     */
+    BULK(1, 8);
+
+    private final int threads;
+    private final int queueSize;
+
+    private Priority(int threads, int queueSize) {
+      this.threads = threads;
+      this.queueSize = queueSize;
+    }
+  }
+
+  private final String name;
+  private final Map<Priority, ThreadPoolExecutor> executors = new EnumMap<Priority, ThreadPoolExecutor>(Priority.class);
+  private final Map<Priority, AtomicInteger> running = new EnumMap<Priority, AtomicInteger>(Priority.class);
+  private final List<ChangeListener> listeners = new CopyOnWriteArrayList<ChangeListener>();
+  private final Set<Runnable> active = Collections.newSetFromMap(new ConcurrentHashMap<Runnable, Boolean>());
+  private final ConcurrentMap<Object, DbAction<?, ?>> latest = new ConcurrentHashMap<Object, DbAction<?, ?>>();
+
+  private final Runnable fireChange = new Runnable() {
+    @Override
+    public void run() {
+      ChangeEvent event = new ChangeEvent(DbScheduler.this);
+      for (ChangeListener listener : listeners) {
+        listener.stateChanged(event);
+      }
+    }
+  };
+
+  public DbScheduler(String name) {
+    this.name = name;
+    for (Priority priority : Priority.values()) {
+      executors.put(priority, createExecutor(priority));
+      running.put(priority, new AtomicInteger(0));
+    }
+  }
+
+  private ThreadPoolExecutor createExecutor(final Priority priority) {
+    final AtomicInteger counter = new AtomicInteger(0);
+    ThreadFactory threadFactory = new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "neoswing-" + priority.name().toLowerCase() + "-" + counter.incrementAndGet());
+        t.setDaemon(true);
+        if (priority != Priority.INTERACTIVE) {
+          t.setPriority(Thread.NORM_PRIORITY - 1);
+        }
+        return t;
+      }
+    };
+    RejectedExecutionHandler rejectionHandler = new RejectedExecutionHandler() {
+      @Override
+      public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (priority == Priority.PREFETCH && !executor.isShutdown() && cancelOldest(executor)) {
+          executor.execute(r);
+          return;
+        }
+        if (!(r instanceof Future)) {
+          throw new RejectedExecutionException("Too many " + priority + " tasks queued for '" + name + "'");
+        }
+        if (!executor.isShutdown()) {
+          log.warn("Too many " + priority + " tasks queued for '" + name + "', cancelling " + r);
+        }
+        cancel(r);
+        release(r);
+        if (r instanceof DbAction && !executor.isShutdown()) {
+          EdtExecutor.instance.execute(new Runnable() {
+            @Override
+            public void run() {
+              Dialogs.error(null, "Too many " + priority.name().toLowerCase() + " jobs are waiting for '"
+                  + name + "'. Please try again when some have finished.");
+            }
+          });
+        }
+      }
+    };
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(priority.threads, priority.threads,
+        30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(priority.queueSize),
+        threadFactory, rejectionHandler) {
+      @Override
+      protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        active.add(r);
+        running.get(priority).incrementAndGet();
+        fireChange();
+      }
+
+      @Override
+      protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        release(r);
+        active.remove(r);
+        running.get(priority).decrementAndGet();
+        fireChange();
+      }
+    };
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private void release(Runnable task) {
+    if (task instanceof DbAction) {
+      DbAction<?, ?> action = (DbAction<?, ?>) task;
+      if (action.getCoalesceKey() != null) {
+        latest.remove(action.getCoalesceKey(), action);
+      }
+    }
+  }
+
+  private static boolean cancelOldest(ThreadPoolExecutor executor) {
+    for (Runnable task : executor.getQueue()) {
+      if (task instanceof Future && executor.getQueue().remove(task)) {
+        cancel(task);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void cancel(Runnable task) {
+    if (task instanceof Future) {
+      ((Future<?>) task).cancel(false);
+    }
+  }
+
+  /**
+   * Runs the action with its {@link DbAction#getPriority() priority}. If
+   * the action has a {@link DbAction#getCoalesceKey() key}, the previous
+   * action with this key is cancelled.
+   *
+   * @param action
+   */
+  public void execute(DbAction<?, ?> action) {
+    Object key = action.getCoalesceKey();
+    if (key != null) {
+      DbAction<?, ?> previous = latest.put(key, action);
+      if (previous != null && previous != action) {
+        previous.cancel(false);
+        executors.get(previous.getPriority()).remove(previous);
+      }
+    }
+    execute(action.getPriority(), action);
+  }
+
+  /**
+   * Runs the given task with the given priority. Unlike actions, plain
+   * tasks are not cancelled if the queue is full.
+   *
+   * @param priority
+   * @param task
+   * @throws RejectedExecutionException if the queue is full or the
+   * scheduler has been shut down
+   */
+  public void execute(Priority priority, Runnable task) {
+    executors.get(priority).execute(task);
+    fireChange();
+  }
+
+  /**
+   * Returns the number of queued and running tasks of the given priority.
+   *
+   * @param priority
+   * @return
+   */
+  public int getQueueDepth(Priority priority) {
+    return executors.get(priority).getQueue().size() + running.get(priority).get();
+  }
+
+  /**
+   * Returns the number of queued and running tasks of all priorities.
+   *
+   * @return
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (Priority priority : Priority.values()) {
+      depth += getQueueDepth(priority);
+    }
+    return depth;
+  }
+
+  public void addChangeListener(ChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeChangeListener(ChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  private void fireChange() {
+    if (!listeners.isEmpty()) {
+      EdtExecutor.instance.execute(fireChange);
+    }
+  }
+
+  /**
+   * Cancels all queued and running tasks and accepts no new ones. The
+   * running tasks are not interrupted; use
+   * {@link #awaitTermination(long, TimeUnit)} to wait until they have
+   * finished.
+   */
+  public void shutdown() {
+    for (ThreadPoolExecutor executor : executors.values()) {
+      executor.shutdown();
+      List<Runnable> queued = new ArrayList<Runnable>();
+      executor.getQueue().drainTo(queued);
+      for (Runnable task : queued) {
+        cancel(task);
+        release(task);
+      }
+    }
+    for (Runnable task : active) {
+      cancel(task);
+    }
+    fireChange();
+  }
+
+  /**
+   * Waits until all tasks have finished after a {@link #shutdown()}, at
+   * most the given time.
+   *
+   * @param timeout
+   * @param unit
+   * @return {@code true} if all tasks have finished
+   * @throws InterruptedException
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (ThreadPoolExecutor executor : executors.values()) {
+      if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the tasks that are running right now.
+   *
+   * @return
+   */
+  public Set<Runnable> getActiveTasks() {
+    return Collections.unmodifiableSet(active);
+  }
+
+  @Override
+  public String toString() {
+    return "DbScheduler{" +
+        "name='" + name + '\'' +
+        ", interactive=" + getQueueDepth(Priority.INTERACTIVE) +
+        ", prefetch=" + getQueueDepth(Priority.PREFETCH) +
+        ", query=" + getQueueDepth(Priority.QUERY) +
+        ", bulk=" + getQueueDepth(Priority.BULK) +
+        '}';
+  }
+}
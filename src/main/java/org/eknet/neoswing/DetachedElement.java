@@ -0,0 +1,160 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import edu.uci.ics.jung.graph.Graph;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates vertices and edges that are only backed by their id.
+ * <p/>
+ * They are used to show a graph that has not been read from the database,
+ * for example a saved view. The id, the label and the end points of an
+ * edge are known without the database, all other methods look up the real
+ * element and delegate to it. So they must be called inside a transaction
+ * as any other element.
+ * <p/>
+ * Detached elements are equal if they have the same type and id. They are
+ * never equal to the element of the database, use
+ * {@link #canonical(Graph, Vertex, GraphDb)} to find the detached
+ * counterpart of an element in a graph.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 22:40
+ */
+public final class DetachedElement implements InvocationHandler {
+
+  private final GraphDb db;
+  private final ElementId<?> id;
+  private final String key;
+  private final String label;
+  private final Vertex out;
+  private final Vertex in;
+
+  private DetachedElement(GraphDb db, ElementId<?> id, String label, Vertex out, Vertex in) {
+    this.db = db;
+    this.id = id;
+    this.key = String.valueOf(id.getId());
+    this.label = label;
+    this.out = out;
+    this.in = in;
+  }
+
+  public static Vertex vertex(GraphDb db, Object id) {
+    DetachedElement handler = new DetachedElement(db, ElementId.forVertex(id), null, null, null);
+    return (Vertex) Proxy.newProxyInstance(Vertex.class.getClassLoader(), new Class<?>[] { Vertex.class }, handler);
+  }
+
+  public static Edge edge(GraphDb db, Object id, String label, Vertex out, Vertex in) {
+    DetachedElement handler = new DetachedElement(db, ElementId.forEdge(id), label, out, in);
+    return (Edge) Proxy.newProxyInstance(Edge.class.getClassLoader(), new Class<?>[] { Edge.class }, handler);
+  }
+
+  public static boolean isDetached(Object element) {
+    return element != null && Proxy.isProxyClass(element.getClass())
+        && Proxy.getInvocationHandler(element) instanceof DetachedElement;
+  }
+
+  /**
+   * Returns the detached counterpart of the given vertex, if the graph
+   * contains one instead of the vertex itself. Otherwise the vertex is
+   * returned.
+   *
+   * @param graph
+   * @param v
+   * @param db
+   * @return
+   */
+  public static Vertex canonical(Graph<Vertex, Edge> graph, Vertex v, GraphDb db) {
+    if (v == null || graph.containsVertex(v) || isDetached(v)) {
+      return v;
+    }
+    Vertex detached = vertex(db, v.getId());
+    return graph.containsVertex(detached) ? detached : v;
+  }
+
+  /**
+   * Returns the detached counterpart of the given edge, if the graph
+   * contains one instead of the edge itself. Otherwise the edge is
+   * returned.
+   *
+   * @param graph
+   * @param e
+   * @param db
+   * @return
+   */
+  public static Edge canonical(Graph<Vertex, Edge> graph, Edge e, GraphDb db) {
+    if (e == null || graph.containsEdge(e) || isDetached(e)) {
+      return e;
+    }
+    Edge detached = edge(db, e.getId(), null, null, null);
+    return graph.containsEdge(detached) ? detached : e;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    if (method.getDeclaringClass() == Object.class) {
+      if ("equals".equals(name)) {
+        return isDetached(args[0]) && sameElement((DetachedElement) Proxy.getInvocationHandler(args[0]));
+      }
+      if ("hashCode".equals(name)) {
+        return key.hashCode();
+      }
+      if ("toString".equals(name)) {
+        return (id.isVertex() ? "v[" : "e[") + key + "]";
+      }
+    }
+    if ("getId".equals(name) && args == null) {
+      return id.getId();
+    }
+    if (id.isEdge()) {
+      if ("getLabel".equals(name) && args == null && label != null) {
+        return label;
+      }
+      if ("getVertex".equals(name) && args != null && args.length == 1) {
+        if (args[0] == Direction.OUT && out != null) {
+          return out;
+        }
+        if (args[0] == Direction.IN && in != null) {
+          return in;
+        }
+      }
+    }
+    Element element = db.lookup(id);
+    if (element == null) {
+      throw new IllegalStateException("The element '" + key + "' does not exist anymore");
+    }
+    try {
+      return method.invoke(element, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private boolean sameElement(DetachedElement other) {
+    return id.getElementClass() == other.id.getElementClass() && key.equals(other.key);
+  }
+}
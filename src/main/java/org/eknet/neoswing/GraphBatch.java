@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.EdgeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list of changes to the graph view that are applied together via
+ * {@link GraphModel#applyBatch(GraphBatch)}.
+ * <p/>
+ * Batches should be filled in the background, usually inside a
+ * {@link DbAction}: the end points of edges are read when the edge is
+ * added to the batch, so that applying the batch on the EDT does not
+ * need to access the database. Changes are applied in the order they
+ * have been added.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 13:05
+ */
+public final class GraphBatch {
+
+  /**
+   * A good number of changes to collect before publishing a batch.
+   */
+  public static final int CHUNK_SIZE = 500;
+
+  private final List<Op> ops;
+
+  public GraphBatch() {
+    this.ops = new ArrayList<Op>();
+  }
+
+  public GraphBatch(int expectedSize) {
+    this.ops = new ArrayList<Op>(expectedSize);
+  }
+
+  /**
+   * Merges the given batches into one, keeping their order.
+   *
+   * @param batches
+   * @return
+   */
+  public static GraphBatch merge(List<GraphBatch> batches) {
+    if (batches.size() == 1) {
+      return batches.get(0);
+    }
+    int size = 0;
+    for (GraphBatch b : batches) {
+      size += b.size();
+    }
+    GraphBatch merged = new GraphBatch(size);
+    for (GraphBatch b : batches) {
+      merged.ops.addAll(b.ops);
+    }
+    return merged;
+  }
+
+  public GraphBatch addVertex(Vertex vertex) {
+    ops.add(new Op(OpType.ADD_VERTEX, vertex, null, null));
+    return this;
+  }
+
+  public GraphBatch addEdge(Edge edge) {
+    ops.add(new Op(OpType.ADD_EDGE, edge, edge.getVertex(Direction.OUT), edge.getVertex(Direction.IN)));
+    return this;
+  }
+
+  public GraphBatch removeVertex(Vertex vertex) {
+    ops.add(new Op(OpType.REMOVE_VERTEX, vertex, null, null));
+    return this;
+  }
+
+  public GraphBatch removeEdge(Edge edge) {
+    ops.add(new Op(OpType.REMOVE_EDGE, edge, null, null));
+    return this;
+  }
+
+  public int size() {
+    return ops.size();
+  }
+
+  public boolean isEmpty() {
+    return ops.isEmpty();
+  }
+
+  /**
+   * Applies all changes to the given graph. This must be called on the EDT;
+   * use {@link GraphModel#applyBatch(GraphBatch)} to also take care of the
+   * layout and repaint.
+   * <p/>
+   * If the graph contains {@link DetachedElement}s, they are used in place
+   * of the equivalent elements of this batch.
+   *
+   * @param graph
+   * @param db the database of the elements
+   * @param detached whether the graph may contain detached elements, see
+   * {@link GraphModel#setContainsDetached()}
+   */
+  public void applyTo(Graph<Vertex, Edge> graph, GraphDb db, boolean detached) {
+    for (Op op : ops) {
+      switch (op.type) {
+        case ADD_VERTEX:
+          Vertex v = canonical(graph, (Vertex) op.element, db, detached);
+          if (!graph.containsVertex(v)) {
+            graph.addVertex(v);
+          }
+          break;
+        case ADD_EDGE:
+          Edge e = canonical(graph, (Edge) op.element, db, detached);
+          if (!graph.containsEdge(e)) {
+            graph.addEdge(e, canonical(graph, op.out, db, detached),
+                canonical(graph, op.in, db, detached), EdgeType.DIRECTED);
+          }
+          break;
+        case REMOVE_EDGE:
+          graph.removeEdge(canonical(graph, (Edge) op.element, db, detached));
+          break;
+        case REMOVE_VERTEX:
+          graph.removeVertex(canonical(graph, (Vertex) op.element, db, detached));
+          break;
+      }
+    }
+  }
+
+  private static Vertex canonical(Graph<Vertex, Edge> graph, Vertex v, GraphDb db, boolean detached) {
+    return detached ? DetachedElement.canonical(graph, v, db) : v;
+  }
+
+  private static Edge canonical(Graph<Vertex, Edge> graph, Edge e, GraphDb db, boolean detached) {
+    return detached ? DetachedElement.canonical(graph, e, db) : e;
+  }
+
+  private static enum OpType {
+    ADD_VERTEX, ADD_EDGE, REMOVE_VERTEX, REMOVE_EDGE
+  }
+
+  private static final class Op {
+    private final OpType type;
+    private final Object element;
+    private final Vertex out;
+    private final Vertex in;
+
+    private Op(OpType type, Object element, Vertex out, Vertex in) {
+      this.type = type;
+      this.element = element;
+      this.out = out;
+      this.in = in;
+    }
+  }
+}
@@ -22,9 +22,21 @@ import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Graph;
 import com.tinkerpop.blueprints.TransactionalGraph;
 import com.tinkerpop.blueprints.Vertex;
-
-import java.util.HashSet;
+import org.eknet.neoswing.search.PropertyIndex;
+import org.eknet.neoswing.utils.EdtExecutor;
+import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
@@ -32,11 +44,47 @@ import java.util.Set;
  */
 public class GraphDb {
   private final static ThreadLocal<TopTx> txContext = new ThreadLocal<TopTx>();
+  private final static Logger log = LoggerFactory.getLogger(GraphDb.class);
+  private final static long shutdownTimeout = 10;
 
   private final Graph db;
+  private final File location;
+  private final DbScheduler scheduler;
+  private final RelationshipTypeCatalog relationshipTypes;
+  private final LabelCache labelCache = new LabelCache(50000);
+  private final PropertyIndex propertyIndex = new PropertyIndex(this);
+  private final NeighborhoodCache neighborhoods = new NeighborhoodCache(this, 1000);
+  private boolean closed = false;
 
   public GraphDb(Graph db) {
+    this(db, null);
+  }
+
+  /**
+   * Creates a database that has been opened from the given location. The
+   * location identifies the database across sessions, for example to keep
+   * its relationship types.
+   *
+   * @param db
+   * @param location the directory of the database or {@code null}
+   */
+  public GraphDb(Graph db, File location) {
     this.db = db;
+    this.location = canonical(location);
+    this.scheduler = new DbScheduler(db.toString());
+    this.relationshipTypes = new RelationshipTypeCatalog(this,
+        NeoSwingUtil.getPrefs().node("relationshiptypes"), this.location);
+  }
+
+  private static File canonical(File location) {
+    if (location == null) {
+      return null;
+    }
+    try {
+      return location.getCanonicalFile();
+    } catch (IOException e) {
+      return location.getAbsoluteFile();
+    }
   }
 
   public Graph getDelegate() {
@@ -47,10 +95,67 @@ public class GraphDb {
     return db.toString();
   }
 
-  public void shutdown() {
+  /**
+   * Returns the canonical location of the database, or {@code null} if it
+   * is not known.
+   *
+   * @return
+   */
+  public File getLocation() {
+    return location;
+  }
+
+  /**
+   * Cancels all tasks, waits until the running ones have finished and then
+   * closes the database. The backend is not closed while a task may still
+   * be inside a transaction, so this can take a while and should not be
+   * called on the EDT; see {@link #shutdownInBackground(Runnable)}. Calling
+   * it again waits for the first call and then returns.
+   */
+  public synchronized void shutdown() {
+    if (closed) {
+      return;
+    }
+    scheduler.shutdown();
+    try {
+      while (!scheduler.awaitTermination(shutdownTimeout, TimeUnit.SECONDS)) {
+        log.warn("Waiting for the tasks of '" + getName() + "' to finish: " + scheduler.getActiveTasks());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Interrupted while waiting for the tasks of '" + getName() + "', the database is not closed");
+      return;
+    }
+    closed = true;
+    relationshipTypes.close();
+    propertyIndex.close();
     db.shutdown();
   }
 
+  /**
+   * Shuts the database down in a new thread, so that the caller does not
+   * wait for the running tasks.
+   *
+   * @param whenDone run on the EDT when the database is closed, may be
+   * {@code null}
+   */
+  public void shutdownInBackground(final Runnable whenDone) {
+    // not a daemon, so that the application does not exit before the files are closed
+    Thread closer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          shutdown();
+        } finally {
+          if (whenDone != null) {
+            EdtExecutor.instance.execute(whenDone);
+          }
+        }
+      }
+    }, "neoswing-shutdown-" + Integer.toHexString(getName().hashCode()));
+    closer.start();
+  }
+
   public Iterable<Vertex> getVertices(String key, Object value) {
     return db.getVertices(key, value);
   }
@@ -67,13 +172,66 @@ public class GraphDb {
     return db.getEdges();
   }
 
+  /**
+   * Returns the labels of all edges in this database. The labels are
+   * taken from a catalog that is built once in the background and then
+   * kept up to date by {@link #createEdge(Vertex, Vertex, String)} and
+   * {@link #deleteEdge(Edge)}. While the catalog is built, the returned
+   * set grows as more labels are found.
+   *
+   * @return an unmodifiable live view of all edge labels
+   */
   public Set<String> getRelationshipTypes() {
-    //hardcore find impl
-    Set<String> set = new HashSet<String>();
-    for (Edge e : db.getEdges()) {
-      set.add(e.getLabel());
-    }
-    return set;
+    return relationshipTypes.getTypes();
+  }
+
+  /**
+   * Discards the relationship type catalog and scans the database again. This
+   * is needed after imports and if the database has been modified outside
+   * of NeoSwing.
+   */
+  public void rebuildRelationshipTypes() {
+    relationshipTypes.rebuild();
+  }
+
+  /**
+   * Returns the scheduler that runs the {@link DbAction}s and background
+   * tasks of this database.
+   *
+   * @return
+   */
+  public DbScheduler getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * Returns the cache for the labels that are drawn for the elements
+   * of this database.
+   *
+   * @return
+   */
+  public LabelCache getLabelCache() {
+    return labelCache;
+  }
+
+  /**
+   * Returns the full text index over the property values of this database.
+   * The index is only built if it is used.
+   *
+   * @return
+   */
+  public PropertyIndex getPropertyIndex() {
+    return propertyIndex;
+  }
+
+  /**
+   * Returns the cache for the neighborhoods of vertices. It is kept up to
+   * date by the methods of this class that modify the graph.
+   *
+   * @return
+   */
+  public NeighborhoodCache getNeighborhoodCache() {
+    return neighborhoods;
   }
 
   @SuppressWarnings("unchecked")
@@ -94,19 +252,164 @@ public class GraphDb {
   }
 
   public Vertex createNode() {
-    return db.addVertex(null);
+    return createNode(null);
+  }
+
+  /**
+   * Creates a new vertex. The id is only a hint, most backends ignore it.
+   *
+   * @param id
+   * @return
+   */
+  public Vertex createNode(Object id) {
+    return db.addVertex(id);
   }
 
   public Edge createEdge(Vertex out, Vertex in, String label) {
-    return db.addEdge(null, out, in, label);
+    return createEdge(null, out, in, label);
+  }
+
+  /**
+   * Creates a new edge. The id is only a hint, most backends ignore it.
+   *
+   * @param id
+   * @param out
+   * @param in
+   * @param label
+   * @return
+   */
+  public Edge createEdge(Object id, Vertex out, Vertex in, final String label) {
+    Edge edge = db.addEdge(id, out, in, label);
+    final ElementId<Vertex> outId = ElementId.vertexId(out);
+    final ElementId<Vertex> inId = ElementId.vertexId(in);
+    afterCommit(new Runnable() {
+      @Override
+      public void run() {
+        relationshipTypes.edgeAdded(label);
+        neighborhoods.invalidate(outId);
+        neighborhoods.invalidate(inId);
+      }
+    });
+    return edge;
   }
 
   public void deleteEdge(Edge edge) {
+    final String label = edge.getLabel();
+    final ElementId<Edge> id = ElementId.edgeId(edge);
+    final Map<String, Object> properties = indexedProperties(edge);
+    final ElementId<Vertex> outId = ElementId.vertexId(edge.getVertex(Direction.OUT));
+    final ElementId<Vertex> inId = ElementId.vertexId(edge.getVertex(Direction.IN));
     db.removeEdge(edge);
+    afterCommit(new Runnable() {
+      @Override
+      public void run() {
+        relationshipTypes.edgeRemoved(label);
+        propertyIndex.elementRemoved(id, properties);
+        neighborhoods.invalidate(outId);
+        neighborhoods.invalidate(inId);
+      }
+    });
   }
 
   public void deleteVertex(Vertex vertex) {
+    // the backend removes all remaining edges, too
+    final List<String> labels = new ArrayList<String>();
+    final List<ElementId<Vertex>> affected = new ArrayList<ElementId<Vertex>>();
+    final Map<ElementId<?>, Map<String, Object>> removed = new HashMap<ElementId<?>, Map<String, Object>>();
+    affected.add(ElementId.vertexId(vertex));
+    for (Edge edge : vertex.getEdges(Direction.BOTH)) {
+      labels.add(edge.getLabel());
+      affected.add(ElementId.vertexId(getOtherNode(edge, vertex)));
+      if (propertyIndex.isLoaded()) {
+        removed.put(ElementId.edgeId(edge), indexedProperties(edge));
+      }
+    }
+    if (propertyIndex.isLoaded()) {
+      removed.put(ElementId.vertexId(vertex), indexedProperties(vertex));
+    }
     db.removeVertex(vertex);
+    afterCommit(new Runnable() {
+      @Override
+      public void run() {
+        for (String label : labels) {
+          relationshipTypes.edgeRemoved(label);
+        }
+        for (Map.Entry<ElementId<?>, Map<String, Object>> entry : removed.entrySet()) {
+          propertyIndex.elementRemoved(entry.getKey(), entry.getValue());
+        }
+        for (ElementId<Vertex> id : affected) {
+          neighborhoods.invalidate(id);
+        }
+      }
+    });
+  }
+
+  public void setProperty(Element element, String key, Object value) {
+    Object old = propertyIndex.isLoaded() ? element.getProperty(key) : null;
+    element.setProperty(key, value);
+    propertyChanged(element, key, old, value);
+  }
+
+  public Object removeProperty(Element element, String key) {
+    Object old = element.removeProperty(key);
+    propertyChanged(element, key, old, null);
+    return old;
+  }
+
+  private void propertyChanged(Element element, final String key, final Object oldValue, final Object newValue) {
+    final ElementId<?> id = element instanceof Vertex
+        ? ElementId.vertexId((Vertex) element)
+        : ElementId.edgeId((Edge) element);
+    afterCommit(new Runnable() {
+      @Override
+      public void run() {
+        labelCache.invalidate(id);
+        neighborhoods.invalidate(id);
+        propertyIndex.propertyChanged(id, key, oldValue, newValue);
+      }
+    });
+  }
+
+  private Map<String, Object> indexedProperties(Element element) {
+    if (!propertyIndex.isLoaded()) {
+      return Collections.emptyMap();
+    }
+    Map<String, Object> properties = new HashMap<String, Object>();
+    for (String key : element.getPropertyKeys()) {
+      properties.put(key, element.getProperty(key));
+    }
+    return properties;
+  }
+
+  /**
+   * Runs the given callback once the current transaction has been committed
+   * successfully. If there is no transaction, it is run immediately.
+   *
+   * @param callback
+   */
+  public void afterCommit(Runnable callback) {
+    TopTx toptx = txContext.get();
+    if (toptx != null) {
+      toptx.commitCallbacks.add(callback);
+    } else {
+      callback.run();
+    }
+  }
+
+  /**
+   * Commits the changes of the current transaction and continues with a
+   * new one. This is for long running work like imports, that would
+   * otherwise keep all changes in memory until the end.
+   *
+   * @throws IllegalStateException if there is no transaction or it has
+   * been marked for rollback
+   */
+  public void checkpoint() {
+    TopTx toptx = txContext.get();
+    if (toptx == null) {
+      throw new IllegalStateException("No transaction active.");
+    }
+    toptx.checkpoint();
   }
 
   public Tx beginTx() {
@@ -135,6 +438,7 @@ public class GraphDb {
   private class TopTx implements Tx {
     private boolean committed = false;
     private boolean rollbackOnly = false;
+    private final List<Runnable> commitCallbacks = new ArrayList<Runnable>();
 
     public void setRollbackOnly(boolean rollbackOnly) {
       this.rollbackOnly = rollbackOnly;
@@ -145,6 +449,21 @@ public class GraphDb {
       this.committed = true;
     }
 
+    public void checkpoint() {
+      if (rollbackOnly) {
+        throw new IllegalStateException("Transaction is marked for rollback.");
+      }
+      if (db instanceof TransactionalGraph) {
+        TransactionalGraph graph = (TransactionalGraph) db;
+        graph.stopTransaction(TransactionalGraph.Conclusion.SUCCESS);
+      }
+      List<Runnable> callbacks = new ArrayList<Runnable>(commitCallbacks);
+      commitCallbacks.clear();
+      for (Runnable callback : callbacks) {
+        callback.run();
+      }
+    }
+
     @Override
     public void finish() {
       txContext.remove();
@@ -153,6 +472,9 @@ public class GraphDb {
           TransactionalGraph graph = (TransactionalGraph) db;
           graph.stopTransaction(TransactionalGraph.Conclusion.SUCCESS);
         }
+        for (Runnable callback : commitCallbacks) {
+          callback.run();
+        }
       } else {
         if (db instanceof TransactionalGraph) {
           TransactionalGraph graph = (TransactionalGraph) db;
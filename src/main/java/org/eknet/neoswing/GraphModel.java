@@ -37,4 +37,21 @@ public interface GraphModel {
   GraphDb getDatabase();
 
   <A, B> void execute(DbAction<A, B> action);
+
+  /**
+   * Applies all changes of the batch to the graph in one pass on the EDT.
+   * The layout is paused while the batch is applied and listeners are
+   * notified once afterwards.
+   *
+   * @param batch
+   */
+  void applyBatch(GraphBatch batch);
+
+  /**
+   * Tells the model that the graph contains {@link DetachedElement}s, for
+   * example after a view snapshot has been loaded. From then on, batches
+   * use them in place of the equivalent elements of the database; this is
+   * skipped before, as it creates a proxy for every element.
+   */
+  void setContainsDetached();
 }
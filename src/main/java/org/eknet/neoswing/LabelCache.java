@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded cache for the labels drawn in the graph view. If the cache
+ * is full, the least recently used label is dropped. The
+ * {@link org.eknet.neoswing.view.LabelService} grows the cache with the
+ * view, see {@link #ensureCapacity(int)}.
+ * <p/>
+ * Entries are keyed by {@link ElementId} and must be invalidated whenever
+ * something the label is made from changes. {@link GraphDb} does this for
+ * property changes done via {@link GraphDb#setProperty(com.tinkerpop.blueprints.Element, String, Object)}
+ * and {@link GraphDb#removeProperty(com.tinkerpop.blueprints.Element, String)}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 12:20
+ */
+public class LabelCache {
+
+  private int capacity;
+  private final Map<ElementId<?>, String> labels;
+
+  private long hits;
+  private long misses;
+
+  public LabelCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.labels = new LinkedHashMap<ElementId<?>, String>(Math.min(capacity, 1024), 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ElementId<?>, String> eldest) {
+        return size() > LabelCache.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached label or {@code null}.
+   *
+   * @param id
+   * @return
+   */
+  public synchronized String get(ElementId<?> id) {
+    String label = labels.get(id);
+    if (label == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return label;
+  }
+
+  public synchronized boolean contains(ElementId<?> id) {
+    return labels.containsKey(id);
+  }
+
+  public synchronized void put(ElementId<?> id, String label) {
+    labels.put(id, label);
+  }
+
+  public synchronized void invalidate(ElementId<?> id) {
+    labels.remove(id);
+  }
+
+  public synchronized void clear() {
+    labels.clear();
+  }
+
+  public synchronized int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Grows the cache to hold at least the given number of labels. The
+   * cache must hold the labels of all visible elements, otherwise they
+   * are evicted and resolved again on every paint.
+   *
+   * @param minCapacity
+   */
+  public synchronized void ensureCapacity(int minCapacity) {
+    if (minCapacity > capacity) {
+      capacity = minCapacity;
+    }
+  }
+
+  public synchronized int size() {
+    return labels.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "LabelCache{" +
+        "size=" + labels.size() +
+        ", capacity=" + capacity +
+        ", hits=" + hits +
+        ", misses=" + misses +
+        '}';
+  }
+}
@@ -18,6 +18,9 @@ package org.eknet.neoswing;
 
 import edu.uci.ics.jung.algorithms.layout.*;
 import edu.uci.ics.jung.graph.Graph;
+import org.eknet.neoswing.layout.BarnesHutLayout;
+import org.eknet.neoswing.layout.IncrementalLayout;
+import org.eknet.neoswing.layout.ParallelForceLayout;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
@@ -39,6 +42,20 @@ public enum Layouts implements LayoutFactory {
     }
   },
 
+  BarnesHutLayout {
+    @Override
+    public <V, E> AbstractLayout<V, E> createLayout(Graph<V, E> graph) {
+      return new BarnesHutLayout<V, E>(graph);
+    }
+  },
+
+  ParallelFRLayout {
+    @Override
+    public <V, E> AbstractLayout<V, E> createLayout(Graph<V, E> graph) {
+      return new ParallelForceLayout<V, E>(graph);
+    }
+  },
+
   CircleLayout {
     @Override
     public <V,E> AbstractLayout<V, E> createLayout(Graph<V, E> graph) {
@@ -67,6 +84,13 @@ public enum Layouts implements LayoutFactory {
     }
   },
 
+  IncrementalLayout {
+    @Override
+    public <V, E> AbstractLayout<V, E> createLayout(Graph<V, E> graph) {
+      return new IncrementalLayout<V, E>(graph);
+    }
+  },
+
   RandomLayout {
     @Override
     public <V, E> AbstractLayout<V, E> createLayout(Graph<V, E> graph) {
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A snapshot of a vertex and its edges: the properties of the vertex, the
+ * number of edges per label and direction, and the ids of the first edges
+ * and their other vertices.
+ * <p/>
+ * The snapshot holds no database objects, so it can be kept outside of
+ * the transaction it was read in. See {@link NeighborhoodCache}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 09:40
+ */
+public final class Neighborhood {
+
+  private final ElementId<Vertex> vertex;
+  private final Map<String, Object> properties;
+  private final Map<String, long[]> degrees;
+  private final List<EdgeRef> edges;
+  private final boolean complete;
+
+  private Neighborhood(ElementId<Vertex> vertex, Map<String, Object> properties,
+                       Map<String, long[]> degrees, List<EdgeRef> edges, boolean complete) {
+    this.vertex = vertex;
+    this.properties = Collections.unmodifiableMap(properties);
+    this.degrees = degrees;
+    this.edges = Collections.unmodifiableList(edges);
+    this.complete = complete;
+  }
+
+  /**
+   * Reads the neighborhood of the given vertex. The edges are counted up
+   * to {@code maxScan} edges, and the first {@code maxEdges} of them are
+   * kept. This must be called within a transaction.
+   *
+   * @param v
+   * @param maxEdges
+   * @param maxScan
+   * @return
+   */
+  public static Neighborhood load(Vertex v, int maxEdges, int maxScan) {
+    Map<String, Object> properties = new LinkedHashMap<String, Object>();
+    for (String key : v.getPropertyKeys()) {
+      properties.put(key, v.getProperty(key));
+    }
+    Map<String, long[]> degrees = new TreeMap<String, long[]>();
+    List<EdgeRef> edges = new ArrayList<EdgeRef>();
+    int scanned = 0;
+    boolean complete = true;
+    for (Direction direction : new Direction[] { Direction.OUT, Direction.IN }) {
+      for (Edge edge : v.getEdges(direction)) {
+        if (scanned++ >= maxScan) {
+          complete = false;
+          break;
+        }
+        long[] counts = degrees.get(edge.getLabel());
+        if (counts == null) {
+          counts = new long[2];
+          degrees.put(edge.getLabel(), counts);
+        }
+        counts[direction.ordinal()]++;
+        if (edges.size() < maxEdges) {
+          Vertex other = edge.getVertex(direction.opposite());
+          edges.add(new EdgeRef(ElementId.edgeId(edge), edge.getLabel(), direction, ElementId.vertexId(other)));
+        }
+      }
+    }
+    return new Neighborhood(ElementId.vertexId(v), properties, degrees, edges, complete);
+  }
+
+  public ElementId<Vertex> getVertex() {
+    return vertex;
+  }
+
+  public Map<String, Object> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Returns whether all edges of the vertex have been counted. If not,
+   * the labels and degrees are incomplete.
+   *
+   * @return
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Returns the labels of all edges of the vertex.
+   *
+   * @return
+   */
+  public SortedSet<String> getLabels() {
+    return new TreeSet<String>(degrees.keySet());
+  }
+
+  /**
+   * Returns the number of edges per label in the given direction.
+   *
+   * @param direction
+   * @return
+   */
+  public Map<String, Long> getDegrees(Direction direction) {
+    Map<String, Long> result = new TreeMap<String, Long>();
+    for (Map.Entry<String, long[]> entry : degrees.entrySet()) {
+      long count = 0;
+      if (direction != Direction.IN) {
+        count += entry.getValue()[Direction.OUT.ordinal()];
+      }
+      if (direction != Direction.OUT) {
+        count += entry.getValue()[Direction.IN.ordinal()];
+      }
+      if (count > 0) {
+        result.put(entry.getKey(), count);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the first edges of the vertex, the outgoing edges first.
+   *
+   * @return
+   */
+  public List<EdgeRef> getEdges() {
+    return edges;
+  }
+
+  @Override
+  public String toString() {
+    return "Neighborhood{" +
+        "vertex=" + vertex +
+        ", labels=" + degrees.size() +
+        ", edges=" + edges.size() +
+        ", complete=" + complete +
+        '}';
+  }
+
+  /**
+   * An edge of the vertex with the id of the vertex at its other end.
+   */
+  public static final class EdgeRef {
+    private final ElementId<Edge> edge;
+    private final String label;
+    private final Direction direction;
+    private final ElementId<Vertex> other;
+
+    private EdgeRef(ElementId<Edge> edge, String label, Direction direction, ElementId<Vertex> other) {
+      this.edge = edge;
+      this.label = label;
+      this.direction = direction;
+      this.other = other;
+    }
+
+    public ElementId<Edge> getEdge() {
+      return edge;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    /**
+     * Returns {@link Direction#OUT} if the edge starts at the vertex.
+     *
+     * @return
+     */
+    public Direction getDirection() {
+      return direction;
+    }
+
+    public ElementId<Vertex> getOther() {
+      return other;
+    }
+  }
+}
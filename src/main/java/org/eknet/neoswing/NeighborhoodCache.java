@@ -0,0 +1,337 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.utils.EdtExecutor;
+import org.eknet.neoswing.utils.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A size-bounded cache of {@link Neighborhood}s, filled speculatively in
+ * the background.
+ * <p/>
+ * A vertex that is hovered or selected in the view is usually expanded or
+ * inspected next. {@link #prefetch(ElementId)} loads its neighborhood
+ * with the prefetch priority of the {@link DbScheduler}, so that the
+ * following requests via {@link #fetch(ElementId, Function)} are served
+ * from memory. Prefetches
+ * are queued most recent first and only the last {@link #MAX_PREFETCHES}
+ * are kept; explicit fetches go before all prefetches. The labels of the
+ * loaded edges are put into the {@link LabelCache}, too.
+ * <p/>
+ * {@link GraphDb} invalidates the neighborhoods of all vertices whose
+ * properties or edges are changed.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 10:05
+ */
+public class NeighborhoodCache {
+  private static final Logger log = LoggerFactory.getLogger(NeighborhoodCache.class);
+
+  public static final int MAX_PREFETCHES = 16;
+  public static final int MAX_EDGES = 1000;
+  public static final int MAX_SCAN = 100000;
+
+  private final GraphDb db;
+  private final int capacity;
+  private final Map<ElementId<Vertex>, Neighborhood> entries;
+
+  private final Deque<ElementId<Vertex>> requested = new ArrayDeque<ElementId<Vertex>>();
+  private final Deque<ElementId<Vertex>> prefetches = new ArrayDeque<ElementId<Vertex>>();
+  private final Map<ElementId<Vertex>, List<Function<Neighborhood, ?>>> waiting =
+      new HashMap<ElementId<Vertex>, List<Function<Neighborhood, ?>>>();
+  private final Map<Object, Request> keyed = new HashMap<Object, Request>();
+  private boolean scheduled;
+  private long modifications;
+
+  private long hits;
+  private long misses;
+
+  private final Runnable loader = new Runnable() {
+    @Override
+    public void run() {
+      try {
+        ElementId<Vertex> id;
+        while ((id = next()) != null) {
+          load(id);
+        }
+      } catch (RuntimeException e) {
+        synchronized (NeighborhoodCache.this) {
+          scheduled = false;
+        }
+        throw e;
+      }
+    }
+  };
+
+  public NeighborhoodCache(GraphDb db, final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.db = db;
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<ElementId<Vertex>, Neighborhood>(Math.min(capacity, 1024), 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ElementId<Vertex>, Neighborhood> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached neighborhood or {@code null}.
+   *
+   * @param id
+   * @return
+   */
+  public synchronized Neighborhood get(ElementId<Vertex> id) {
+    Neighborhood n = entries.get(id);
+    if (n == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return n;
+  }
+
+  /**
+   * Loads the neighborhood of the given vertex in the background, if it
+   * is not cached yet.
+   *
+   * @param id
+   */
+  public synchronized void prefetch(ElementId<Vertex> id) {
+    if (entries.containsKey(id) || waiting.containsKey(id)) {
+      return;
+    }
+    waiting.put(id, new ArrayList<Function<Neighborhood, ?>>(1));
+    prefetches.addLast(id);
+    while (prefetches.size() > MAX_PREFETCHES) {
+      waiting.remove(prefetches.removeFirst());
+    }
+    schedule();
+  }
+
+  /**
+   * Calls the callback with the neighborhood of the given vertex. If it
+   * is cached, the callback is called immediately, otherwise it is called
+   * on the EDT once the neighborhood has been loaded. The callback gets
+   * {@code null} if the vertex does not exist.
+   *
+   * @param id
+   * @param callback
+   */
+  public void fetch(ElementId<Vertex> id, Function<Neighborhood, ?> callback) {
+    fetch(id, null, callback);
+  }
+
+  /**
+   * Like {@link #fetch(ElementId, Function)}, but a pending fetch with
+   * the same key is superseded: its callback is dropped and, if no one
+   * else is waiting for it, its vertex is only prefetched.
+   *
+   * @param id
+   * @param key
+   * @param callback
+   */
+  public void fetch(ElementId<Vertex> id, Object key, Function<Neighborhood, ?> callback) {
+    Neighborhood n;
+    synchronized (this) {
+      if (key != null) {
+        supersede(keyed.remove(key));
+      }
+      n = get(id);
+      if (n == null) {
+        List<Function<Neighborhood, ?>> callbacks = waiting.get(id);
+        if (callbacks == null) {
+          callbacks = new ArrayList<Function<Neighborhood, ?>>(1);
+          waiting.put(id, callbacks);
+        }
+        callbacks.add(callback);
+        if (key != null) {
+          keyed.put(key, new Request(id, callback));
+        }
+        if (!requested.contains(id)) {
+          prefetches.remove(id);
+          requested.addLast(id);
+        }
+        schedule();
+        return;
+      }
+    }
+    callback.apply(n);
+  }
+
+  private void supersede(Request request) {
+    if (request == null) {
+      return;
+    }
+    List<Function<Neighborhood, ?>> callbacks = waiting.get(request.id);
+    if (callbacks != null && callbacks.remove(request.callback) && callbacks.isEmpty()
+        && requested.remove(request.id)) {
+      prefetches.addLast(request.id);
+      while (prefetches.size() > MAX_PREFETCHES) {
+        waiting.remove(prefetches.removeFirst());
+      }
+    }
+  }
+
+  /**
+   * Reads the neighborhood of the given vertex within the current
+   * transaction and caches it.
+   *
+   * @param v
+   * @return
+   */
+  public Neighborhood load(Vertex v) {
+    long stamp;
+    synchronized (this) {
+      stamp = modifications;
+    }
+    Neighborhood n = Neighborhood.load(v, MAX_EDGES, MAX_SCAN);
+    LabelCache labels = db.getLabelCache();
+    for (Neighborhood.EdgeRef edge : n.getEdges()) {
+      labels.put(edge.getEdge(), edge.getLabel());
+    }
+    synchronized (this) {
+      if (stamp == modifications) {
+        entries.put(n.getVertex(), n);
+      }
+    }
+    return n;
+  }
+
+  public synchronized void invalidate(ElementId<?> id) {
+    modifications++;
+    entries.remove(id);
+  }
+
+  public synchronized void clear() {
+    modifications++;
+    entries.clear();
+  }
+
+  private void schedule() {
+    if (!scheduled) {
+      scheduled = true;
+      try {
+        db.getScheduler().execute(DbScheduler.Priority.PREFETCH, loader);
+      } catch (RejectedExecutionException e) {
+        scheduled = false;
+        log.debug("Unable to schedule prefetch: " + e.getMessage());
+      }
+    }
+  }
+
+  private synchronized ElementId<Vertex> next() {
+    if (!requested.isEmpty()) {
+      return requested.removeFirst();
+    }
+    if (!prefetches.isEmpty()) {
+      return prefetches.removeLast();
+    }
+    scheduled = false;
+    return null;
+  }
+
+  private void load(ElementId<Vertex> id) {
+    Neighborhood n = null;
+    GraphDb.Tx tx = db.beginTx();
+    try {
+      try {
+        Vertex v = db.lookup(id);
+        if (v != null) {
+          n = load(v);
+        }
+      } catch (RuntimeException e) {
+        log.error("Error loading the neighborhood of " + id, e);
+      }
+      tx.success();
+    } finally {
+      tx.finish();
+    }
+    final List<Function<Neighborhood, ?>> callbacks;
+    synchronized (this) {
+      callbacks = waiting.remove(id);
+      Iterator<Request> iter = keyed.values().iterator();
+      while (iter.hasNext()) {
+        if (iter.next().id.equals(id)) {
+          iter.remove();
+        }
+      }
+    }
+    if (callbacks != null && !callbacks.isEmpty()) {
+      final Neighborhood result = n;
+      EdtExecutor.instance.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (Function<Neighborhood, ?> callback : callbacks) {
+            callback.apply(result);
+          }
+        }
+      });
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "NeighborhoodCache{" +
+        "size=" + entries.size() +
+        ", capacity=" + capacity +
+        ", hits=" + hits +
+        ", misses=" + misses +
+        '}';
+  }
+
+  private static final class Request {
+    private final ElementId<Vertex> id;
+    private final Function<Neighborhood, ?> callback;
+
+    private Request(ElementId<Vertex> id, Function<Neighborhood, ?> callback) {
+      this.id = id;
+      this.callback = callback;
+    }
+  }
+}
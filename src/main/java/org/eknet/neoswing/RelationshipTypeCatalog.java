@@ -0,0 +1,340 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import com.tinkerpop.blueprints.Edge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Keeps the set of edge labels of one database together with the number
+ * of edges using each label.
+ * <p/>
+ * The catalog is filled once by scanning all edges in a background thread
+ * and is then stored in the preferences under the canonical path of the
+ * database, so that following sessions can skip the scan. Databases
+ * without a known location are scanned in every session. Afterwards it
+ * is kept current by {@link GraphDb} when edges are created or deleted.
+ * These changes are written to the preferences on {@link #close()}; until
+ * then the stored catalog is marked incomplete, so that it is scanned
+ * again if the session ends without closing the database. Changes made
+ * to the database outside of NeoSwing are not noticed; use
+ * {@link #rebuild()} in that case.
+ * <p/>
+ * Edges that are created while the initial scan is running may be counted
+ * twice, which can only leave a label in the catalog longer than necessary.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 10:12
+ */
+final class RelationshipTypeCatalog {
+  private static final Logger log = LoggerFactory.getLogger(RelationshipTypeCatalog.class);
+
+  private static final String completeKey = "%s.complete";
+  private static final int flushInterval = 10000;
+
+  private final GraphDb db;
+  private final Preferences root;
+  private final String nodeName;
+
+  private final ConcurrentMap<String, Long> counts = new ConcurrentHashMap<String, Long>();
+  private final Set<String> types = Collections.unmodifiableSet(counts.keySet());
+  private final Set<String> dirty = new HashSet<String>();
+
+  private boolean loaded = false;
+  private volatile boolean complete = false;
+  private volatile boolean stopped = false;
+  private Thread scanner;
+
+  /**
+   * Creates the catalog of the given database.
+   *
+   * @param db
+   * @param root the preferences node to store catalogs in
+   * @param location the canonical location of the database or {@code null}
+   * if it is not known, in which case the catalog is not stored
+   */
+  RelationshipTypeCatalog(GraphDb db, Preferences root, File location) {
+    this.db = db;
+    this.root = root;
+    this.nodeName = location == null ? null : "db" + digest(location.getPath());
+  }
+
+  private static String digest(String path) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-1").digest(path.getBytes("UTF-8"));
+      StringBuilder hex = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns a live, unmodifiable view of all known labels. If the catalog has
+   * not been built yet, the background scan is started and the returned
+   * set fills up while it runs.
+   *
+   * @return
+   */
+  public Set<String> getTypes() {
+    ensureLoaded();
+    return types;
+  }
+
+  /**
+   * Whether all edges have been accounted for, either by a completed scan or
+   * by reading a catalog that was stored in an earlier session.
+   *
+   * @return
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public synchronized void edgeAdded(String label) {
+    Long count = counts.get(label);
+    long next = count == null ? 1 : count + 1;
+    counts.put(label, next);
+    store(label, next);
+  }
+
+  public synchronized void edgeRemoved(String label) {
+    Long count = counts.get(label);
+    if (count == null) {
+      return;
+    }
+    if (count <= 1) {
+      counts.remove(label);
+      store(label, 0);
+    } else {
+      counts.put(label, count - 1);
+      store(label, count - 1);
+    }
+  }
+
+  /**
+   * Discards the current catalog and starts a new scan.
+   */
+  public synchronized void rebuild() {
+    stopScanner();
+    counts.clear();
+    dirty.clear();
+    complete = false;
+    if (nodeName != null) {
+      root.remove(String.format(completeKey, nodeName));
+      try {
+        root.node(nodeName).clear();
+      } catch (BackingStoreException e) {
+        log.warn("Unable to clear stored relationship types", e);
+      }
+    }
+    loaded = true;
+    startScanner();
+  }
+
+  /**
+   * Stops the scan and writes the changes since the last scan to the
+   * preferences.
+   */
+  public synchronized void close() {
+    stopped = true;
+    stopScanner();
+    flush();
+  }
+
+  private synchronized void ensureLoaded() {
+    if (loaded || stopped) {
+      return;
+    }
+    loaded = true;
+    if (nodeName != null && root.getBoolean(String.format(completeKey, nodeName), false)) {
+      Preferences node = root.node(nodeName);
+      try {
+        for (String label : node.keys()) {
+          long count = node.getLong(label, 0);
+          if (count > 0) {
+            counts.put(label, count);
+          }
+        }
+        complete = true;
+        return;
+      } catch (BackingStoreException e) {
+        log.warn("Unable to read stored relationship types. Scanning database.", e);
+        counts.clear();
+      }
+    }
+    startScanner();
+  }
+
+  private void startScanner() {
+    scanner = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        scan();
+      }
+    }, "neoswing-reltypes-" + Integer.toHexString(db.getName().hashCode()));
+    scanner.setDaemon(true);
+    scanner.start();
+  }
+
+  /**
+   * Detaches the current scanner, which stops at its next check. See
+   * {@link DbScheduler} for why it is not interrupted.
+   */
+  private void stopScanner() {
+    scanner = null;
+  }
+
+  private void scan() {
+    long start = System.currentTimeMillis();
+    long n = 0;
+    Map<String, Long> found = new HashMap<String, Long>();
+    GraphDb.Tx tx = db.beginTx();
+    try {
+      for (Edge edge : db.getEdges()) {
+        String label = edge.getLabel();
+        Long count = found.get(label);
+        found.put(label, count == null ? 1 : count + 1);
+        n++;
+        if (n % flushInterval == 0 && !merge(found, false)) {
+          log.debug("Relationship type scan stopped after " + n + " edges");
+          break;
+        }
+      }
+      tx.success();
+    } catch (RuntimeException e) {
+      log.error("Error scanning relationship types after " + n + " edges", e);
+      // the scan only reads, so let finish() close the transaction quietly
+      tx.success();
+      scanFailed();
+      return;
+    } finally {
+      tx.finish();
+    }
+    if (merge(found, true)) {
+      log.info("Found " + counts.size() + " relationship types in " + n + " edges ("
+          + (System.currentTimeMillis() - start) + "ms)");
+    }
+  }
+
+  /**
+   * Adds the labels found by the scanner to the catalog, unless the scanner
+   * has been stopped in the meantime.
+   *
+   * @param found
+   * @param last
+   * @return {@code false} if the scanner should stop
+   */
+  private synchronized boolean merge(Map<String, Long> found, boolean last) {
+    if (stopped || scanner != Thread.currentThread()) {
+      return false;
+    }
+    for (Map.Entry<String, Long> entry : found.entrySet()) {
+      Long count = counts.get(entry.getKey());
+      counts.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+    }
+    found.clear();
+    if (last) {
+      complete = true;
+      scanner = null;
+      storeAll();
+    }
+    return true;
+  }
+
+  /**
+   * Keeps the counts found so far, but leaves the catalog incomplete.
+   */
+  private synchronized void scanFailed() {
+    if (scanner == Thread.currentThread()) {
+      scanner = null;
+    }
+  }
+
+  /**
+   * Remembers the label to be written on {@link #flush()}. The first change
+   * marks the stored catalog incomplete.
+   */
+  private void store(String label, long count) {
+    if (!complete || nodeName == null) {
+      return;
+    }
+    if (dirty.isEmpty()) {
+      root.remove(String.format(completeKey, nodeName));
+    }
+    dirty.add(label);
+  }
+
+  private void flush() {
+    if (!complete || nodeName == null || dirty.isEmpty()) {
+      return;
+    }
+    Preferences node = root.node(nodeName);
+    for (String label : dirty) {
+      if (label.length() > Preferences.MAX_KEY_LENGTH) {
+        // cannot be stored, so let the next session scan again
+        dirty.clear();
+        return;
+      }
+      Long count = counts.get(label);
+      if (count != null) {
+        node.putLong(label, count);
+      } else {
+        node.remove(label);
+      }
+    }
+    dirty.clear();
+    root.putBoolean(String.format(completeKey, nodeName), true);
+  }
+
+  private void storeAll() {
+    if (nodeName == null) {
+      return;
+    }
+    Preferences node = root.node(nodeName);
+    for (String label : counts.keySet()) {
+      if (label.length() > Preferences.MAX_KEY_LENGTH) {
+        // cannot be stored, so let the next session scan again
+        return;
+      }
+    }
+    for (String label : counts.keySet()) {
+      node.putLong(label, counts.get(label));
+    }
+    root.putBoolean(String.format(completeKey, nodeName), true);
+  }
+}
@@ -18,10 +18,10 @@ package org.eknet.neoswing.actions;
 
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
-import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Vertex;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
 import org.eknet.neoswing.utils.NeoSwingUtil;
@@ -50,30 +50,27 @@ public class CollapseNodeAction extends AbstractSwingAction {
   
   @Override
   public void actionPerformed(ActionEvent e) {
-    model.execute(new DbAction<Object, Element>() {
+    model.execute(new DbAction<Object, GraphBatch>() {
       @Override
       protected Object doInTx(GraphModel model) {
         Vertex v = model.getDatabase().lookup(node);
+        GraphBatch batch = new GraphBatch(GraphBatch.CHUNK_SIZE);
         for (Edge relationship : v.getEdges(direction)) {
           Vertex other = GraphDb.getOtherNode(relationship, v);
-          publish(relationship);
-          publish(other);
+          batch.removeEdge(relationship);
+          batch.removeVertex(other);
+          if (batch.size() >= GraphBatch.CHUNK_SIZE) {
+            publish(batch);
+            batch = new GraphBatch(GraphBatch.CHUNK_SIZE);
+          }
         }
+        publish(batch);
         return null;
       }
 
       @Override
-      protected void process(List<Element> chunks) {
-        for (Element el : chunks) {
-          if (el instanceof Vertex) {
-            Vertex vertex = (Vertex) el;
-            getModel().getGraph().removeVertex(vertex);
-          }
-          if (el instanceof Edge) {
-            Edge edge = (Edge) el;
-            getModel().getGraph().removeEdge(edge);
-          }
-        }
+      protected void process(List<GraphBatch> chunks) {
+        getModel().applyBatch(GraphBatch.merge(chunks));
       }
 
       @Override
@@ -22,6 +22,7 @@ import com.tinkerpop.blueprints.Vertex;
 import edu.uci.ics.jung.graph.Graph;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphModel;
 import org.eknet.neoswing.utils.Dialog;
 import org.eknet.neoswing.utils.NeoSwingUtil;
@@ -140,9 +141,11 @@ public class CreateRelationshipAction extends AbstractSwingAction {
 
       @Override
       protected void process(List<Edge> chunks) {
+        GraphBatch batch = new GraphBatch(chunks.size());
         for (Edge e : chunks) {
-          NeoSwingUtil.addEdge(getModel().getGraph(), e);
+          batch.addEdge(e);
         }
+        getModel().applyBatch(batch);
       }
     });
   }
@@ -22,6 +22,7 @@ import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Vertex;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphModel;
 import org.eknet.neoswing.utils.Dialog;
 import org.eknet.neoswing.utils.Dialogs;
@@ -57,7 +58,7 @@ public class DeleteElementAction extends AbstractSwingAction {
     if (option != Dialog.Option.OK) {
       return;
     }
-    graphModel.execute(new DbAction<Object, Runnable>() {
+    graphModel.execute(new DbAction<Object, GraphBatch>() {
       @Override
       protected Object doInTx(GraphModel model) {
         Element el = model.getDatabase().lookup(element);
@@ -70,45 +71,29 @@ public class DeleteElementAction extends AbstractSwingAction {
             if (option != Dialog.Option.OK) {
               return null;
             } else {
+              GraphBatch batch = new GraphBatch();
               for (Edge rel : relationships) {
                 model.getDatabase().deleteEdge(rel);
+                batch.removeEdge(rel);
               }
-              publish(new Runnable() {
-                @Override
-                public void run() {
-                  for (Edge rel : relationships) {
-                    graphModel.getGraph().removeEdge(rel);
-                  }
-                }
-              });
+              publish(batch);
             }
           }
           model.getDatabase().deleteVertex(node);
-          publish(new Runnable() {
-            @Override
-            public void run() {
-              graphModel.getGraph().removeVertex(node);
-            }
-          });
+          publish(new GraphBatch(1).removeVertex(node));
         }
         if (el instanceof Edge) {
           final Edge e = (Edge) el;
           model.getDatabase().deleteEdge(e);
-          publish(new Runnable() {
-            @Override
-            public void run() {
-              graphModel.getGraph().removeEdge(e);
-            }
-          });
+          publish(new GraphBatch(1).removeEdge(e));
         }
         return null;
       }
 
       @Override
-      protected void process(List<Runnable> chunks) {
-        for (Runnable r : chunks) {
-          r.run();
-        }
+      protected void process(List<GraphBatch> chunks) {
+        // the batch maps the elements to the detached ones of a restored view
+        getModel().applyBatch(GraphBatch.merge(chunks));
       }
 
       @Override
@@ -75,10 +75,15 @@ public class DeletePropertyAction extends AbstractSwingAction {
         protected Object doInTx(GraphModel model) {
           Element el = model.getDatabase().lookup(element);
           if (el.getProperty(key) != null) {
-            el.removeProperty(key);
+            model.getDatabase().removeProperty(el, key);
           }
           return null;
         }
+
+        @Override
+        protected void done() {
+          getModel().getViewer().repaint();
+        }
       });
     }
   }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.actions;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.DbScheduler;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
+import org.eknet.neoswing.GraphDb;
+import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.utils.Dialog;
+import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.eknet.neoswing.view.ExpandHopsPanel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Adds the neighborhood of a node up to a number of hops to the view.
+ * <p/>
+ * The neighborhood is read by a breadth first search in one transaction.
+ * At most a given number of edges is followed per vertex and hop, and the
+ * edges can be restricted to some labels. Each hop is added to the view as
+ * one batch as soon as it is complete. The search also stops after
+ * {@link #getMaxVertices()} vertices.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 14:10
+ */
+public class ExpandHopsAction extends AbstractSwingAction {
+  private static final Logger log = LoggerFactory.getLogger(ExpandHopsAction.class);
+
+  private final ElementId<Vertex> node;
+  private final GraphModel model;
+
+  private int hops = 2;
+  private int fanOut = 50;
+  private int maxVertices = 10000;
+
+  public ExpandHopsAction(ElementId<Vertex> node, GraphModel model) {
+    this.node = node;
+    this.model = model;
+
+    putValue(NAME, "Expand k hops...");
+    putValue(SHORT_DESCRIPTION, "Adds the neighborhood of this node up to a number of hops");
+    putValue(SMALL_ICON, NeoSwingUtil.icon("arrow_out"));
+  }
+
+  public int getMaxVertices() {
+    return maxVertices;
+  }
+
+  public void setMaxVertices(int maxVertices) {
+    this.maxVertices = maxVertices;
+  }
+
+  @Override
+  public void actionPerformed(ActionEvent e) {
+    ExpandHopsPanel panel = new ExpandHopsPanel(NeoSwingUtil.getFactory(true),
+        model.getDatabase().getRelationshipTypes(), hops, fanOut);
+    Dialog dialog = new Dialog("Expand k hops");
+    dialog.setContent(panel);
+    Dialog.Option option = dialog.show(getWindow(e), java.awt.Dialog.ModalityType.APPLICATION_MODAL);
+    if (option != Dialog.Option.OK) {
+      return;
+    }
+    hops = panel.getHops();
+    fanOut = panel.getFanOut();
+    expand(panel.getDirection(), panel.getSelectedLabels(), hops, fanOut);
+  }
+
+  private void expand(final Direction direction, final String[] labels, final int hops, final int fanOut) {
+    model.execute(new DbAction<Object, GraphBatch>() {
+      @Override
+      public DbScheduler.Priority getPriority() {
+        return DbScheduler.Priority.QUERY;
+      }
+
+      @Override
+      protected Object doInTx(GraphModel model) {
+        Vertex start = model.getDatabase().lookup(node);
+        if (start == null) {
+          // deleted in the meantime
+          return null;
+        }
+        Set<Object> visited = new HashSet<Object>();
+        visited.add(start.getId());
+        List<Vertex> frontier = new ArrayList<Vertex>();
+        frontier.add(start);
+        for (int hop = 1; hop <= hops && !frontier.isEmpty() && !isCancelled(); hop++) {
+          GraphBatch batch = new GraphBatch();
+          List<Vertex> next = new ArrayList<Vertex>();
+          for (Vertex v : frontier) {
+            int followed = 0;
+            for (Edge edge : v.getEdges(direction, labels)) {
+              if (followed++ >= fanOut) {
+                break;
+              }
+              batch.addEdge(edge);
+              Vertex other = GraphDb.getOtherNode(edge, v);
+              if (visited.add(other.getId())) {
+                next.add(other);
+              }
+            }
+            if (visited.size() >= maxVertices) {
+              log.info("Stopping expansion after " + visited.size() + " vertices");
+              next.clear();
+              break;
+            }
+          }
+          publish(batch);
+          frontier = next;
+        }
+        return null;
+      }
+
+      @Override
+      protected void process(List<GraphBatch> chunks) {
+        getModel().applyBatch(GraphBatch.merge(chunks));
+      }
+
+      @Override
+      protected void done() {
+        if (!isCancelled()) {
+          safeGet();
+        }
+      }
+    });
+  }
+}
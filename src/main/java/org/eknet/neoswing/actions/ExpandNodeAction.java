@@ -21,57 +21,270 @@ import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
+import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.Neighborhood;
+import org.eknet.neoswing.utils.Dialog;
+import org.eknet.neoswing.utils.Function;
 import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.eknet.neoswing.utils.ResumableCursor;
+import org.eknet.neoswing.view.ExpandNodePanel;
 
 import java.awt.event.ActionEvent;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import static org.eknet.neoswing.utils.NeoSwingUtil.addEdge;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
 
 /**
+ * Adds the edges of a node to the view.
+ * <p/>
+ * At most {@link #getLimit()} edges are fetched. If the node has more edges,
+ * the number of edges per label is shown first and the user can choose the
+ * labels and the number of edges to fetch. The position is remembered, so
+ * that the next edges can be shown using the action returned by
+ * {@link #nextPage(ElementId, GraphModel, Direction)}. The positions of
+ * the last {@value #MAX_CURSORS} expanded nodes are kept per database;
+ * a position is dropped once all edges have been shown.
+ * <p/>
+ * If the neighborhood of the node has been prefetched, the edges are
+ * counted from the {@link org.eknet.neoswing.NeighborhoodCache}.
+ *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 10.01.12 20:23
  */
 public class ExpandNodeAction extends AbstractSwingAction {
 
+  public static final int DEFAULT_LIMIT = 200;
+
+  private static final int MAX_CURSORS = 64;
+
+  private static final Map<GraphDb, Map<CursorKey, ResumableCursor<Edge>>> cursors =
+      new WeakHashMap<GraphDb, Map<CursorKey, ResumableCursor<Edge>>>();
+
   private final ElementId<Vertex> node;
   private final GraphModel model;
   private final Direction direction;
+  private final ResumableCursor<Edge> cursor;
+  private int limit = DEFAULT_LIMIT;
 
   public ExpandNodeAction(ElementId<Vertex> node, GraphModel graphModel, Direction direction) {
+    this(node, graphModel, direction, null);
+    putValue(NAME, "Expand " + direction.name());
+  }
+
+  private ExpandNodeAction(ElementId<Vertex> node, GraphModel graphModel, Direction direction, ResumableCursor<Edge> cursor) {
     this.node = node;
     this.direction = direction;
     this.model = graphModel;
+    this.cursor = cursor;
 
-    putValue(NAME, "Expand " + direction.name());
     putValue(SMALL_ICON, NeoSwingUtil.icon("arrow_out"));
   }
 
+  /**
+   * Returns an action that continues a previous expansion of the given node
+   * with the next edges, or {@code null} if there are no more edges.
+   *
+   * @param node
+   * @param graphModel
+   * @param direction
+   * @return
+   */
+  public static ExpandNodeAction nextPage(ElementId<Vertex> node, GraphModel graphModel, Direction direction) {
+    ResumableCursor<Edge> cursor = getCursor(graphModel.getDatabase(), new CursorKey(node, direction));
+    if (cursor == null || !cursor.hasMore()) {
+      return null;
+    }
+    ExpandNodeAction action = new ExpandNodeAction(node, graphModel, direction, cursor);
+    action.putValue(NAME, "Show next " + DEFAULT_LIMIT + " " + direction.name()
+        + " (" + cursor.getPosition() + " shown)");
+    return action;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+
   @Override
-  public void actionPerformed(ActionEvent e) {
-    model.execute(new DbAction<Object, Edge>() {
+  public void actionPerformed(final ActionEvent e) {
+    if (cursor != null) {
+      fetch(cursor, limit);
+      return;
+    }
+    // the edges have usually been counted already when the node was hovered or selected
+    Neighborhood neighborhood = model.getDatabase().getNeighborhoodCache().get(node);
+    if (neighborhood != null && neighborhood.isComplete()) {
+      expand(neighborhood.getDegrees(direction), e);
+      return;
+    }
+    model.execute(new DbAction<Map<String, Long>, Object>() {
       @Override
-      protected Object doInTx(GraphModel model) {
+      protected Map<String, Long> doInTx(GraphModel model) {
         Vertex v = model.getDatabase().lookup(node);
-        for (Edge relationship : v.getEdges(direction)) {
-          publish(relationship);
+        Map<String, Long> degrees = new HashMap<String, Long>();
+        for (Edge edge : v.getEdges(direction)) {
+          Long count = degrees.get(edge.getLabel());
+          degrees.put(edge.getLabel(), count == null ? 1 : count + 1);
         }
-        return null;
+        return new TreeMap<String, Long>(degrees);
+      }
+
+      @Override
+      protected void done() {
+        expand(safeGet(), e);
+      }
+    });
+  }
+
+  private void expand(Map<String, Long> degrees, ActionEvent e) {
+    if (degrees == null || degrees.isEmpty()) {
+      return;
+    }
+    long total = 0;
+    for (Long count : degrees.values()) {
+      total += count;
+    }
+    if (total <= limit) {
+      expand(new String[0], limit);
+      return;
+    }
+    ExpandNodePanel panel = new ExpandNodePanel(NeoSwingUtil.getFactory(true), degrees, limit);
+    Dialog dialog = new Dialog("Expand " + direction.name());
+    dialog.setContent(panel);
+    Dialog.Option option = dialog.show(getWindow(e), java.awt.Dialog.ModalityType.APPLICATION_MODAL);
+    if (option == Dialog.Option.OK) {
+      expand(panel.getSelectedLabels(), panel.getLimit());
+    }
+  }
+
+  private void expand(String[] labels, int max) {
+    ResumableCursor<Edge> cursor = new ResumableCursor<Edge>(edgesOf(node, direction, labels));
+    synchronized (cursors) {
+      Map<CursorKey, ResumableCursor<Edge>> map = cursors.get(model.getDatabase());
+      if (map == null) {
+        map = newCursorMap();
+        cursors.put(model.getDatabase(), map);
+      }
+      map.put(new CursorKey(node, direction), cursor);
+    }
+    fetch(cursor, max);
+  }
+
+  /**
+   * Returns the source of the cursor. Like the cursor maps, it is created
+   * in a static method, so that the cursor does not keep this action, the
+   * model and thereby the database key of {@link #cursors} reachable.
+   */
+  private static Function<GraphDb, Iterable<Edge>> edgesOf(final ElementId<Vertex> node, final Direction direction,
+                                                           final String[] labels) {
+    return new Function<GraphDb, Iterable<Edge>>() {
+      @Override
+      public Iterable<Edge> apply(GraphDb db) {
+        Vertex v = db.lookup(node);
+        return v.getEdges(direction, labels);
+      }
+    };
+  }
+
+  private static Map<CursorKey, ResumableCursor<Edge>> newCursorMap() {
+    return new LinkedHashMap<CursorKey, ResumableCursor<Edge>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<CursorKey, ResumableCursor<Edge>> eldest) {
+        return size() > MAX_CURSORS;
       }
+    };
+  }
+
+  private static void removeCursor(GraphDb db, CursorKey key, ResumableCursor<Edge> cursor) {
+    synchronized (cursors) {
+      Map<CursorKey, ResumableCursor<Edge>> map = cursors.get(db);
+      if (map != null && map.get(key) == cursor) {
+        map.remove(key);
+      }
+    }
+  }
 
+  private void fetch(final ResumableCursor<Edge> cursor, final int max) {
+    model.execute(new DbAction<Object, GraphBatch>() {
       @Override
-      protected void process(List<Edge> chunks) {
-        for (Edge edge : chunks) {
-          addEdge(model.getGraph(), edge);
+      protected Object doInTx(GraphModel model) {
+        List<Edge> edges;
+        synchronized (cursor) {
+          edges = cursor.next(model.getDatabase(), max);
+        }
+        GraphBatch batch = new GraphBatch(GraphBatch.CHUNK_SIZE);
+        for (Edge relationship : edges) {
+          batch.addEdge(relationship);
+          if (batch.size() >= GraphBatch.CHUNK_SIZE) {
+            publish(batch);
+            batch = new GraphBatch(GraphBatch.CHUNK_SIZE);
+          }
         }
+        publish(batch);
+        return null;
+      }
+
+      @Override
+      protected void process(List<GraphBatch> chunks) {
+        model.applyBatch(GraphBatch.merge(chunks));
       }
 
       @Override
       protected void done() {
+        boolean more;
+        synchronized (cursor) {
+          more = cursor.hasMore();
+        }
+        if (!more) {
+          removeCursor(getModel().getDatabase(), new CursorKey(node, direction), cursor);
+        }
         model.getViewer().repaint();
       }
     });
+  }
+
+  private static ResumableCursor<Edge> getCursor(GraphDb db, CursorKey key) {
+    synchronized (cursors) {
+      Map<CursorKey, ResumableCursor<Edge>> map = cursors.get(db);
+      return map == null ? null : map.get(key);
+    }
+  }
+
+  private static final class CursorKey {
+    private final ElementId<Vertex> node;
+    private final Direction direction;
+
+    private CursorKey(ElementId<Vertex> node, Direction direction) {
+      this.node = node;
+      this.direction = direction;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      CursorKey that = (CursorKey) o;
+
+      if (direction != that.direction) return false;
+      if (!node.equals(that.node)) return false;
+
+      return true;
+    }
 
+    @Override
+    public int hashCode() {
+      int result = node.hashCode();
+      result = 31 * result + direction.hashCode();
+      return result;
+    }
   }
 }
@@ -16,23 +16,42 @@
 
 package org.eknet.neoswing.actions;
 
-import com.tinkerpop.blueprints.Graph;
-import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
-import com.tinkerpop.blueprints.util.io.graphml.GraphMLWriter;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
 import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.DbScheduler;
+import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.io.GraphFiles;
+import org.eknet.neoswing.io.GraphFormat;
+import org.eknet.neoswing.io.Progress;
 import org.eknet.neoswing.utils.Function;
 import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.eknet.neoswing.utils.ProgressDialog;
+import org.eknet.neoswing.view.ExportOptionsPanel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.event.ActionEvent;
-import java.io.BufferedOutputStream;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
+ * Exports the complete graph or the current view to a GraphML file or,
+ * if the file name ends with {@code .csv}, to a vertex and an edge CSV
+ * file, see {@link GraphFormat}.
+ * <p/>
+ * The elements are streamed to the file, their
+ * properties are read from the database while writing. A progress dialog
+ * is shown; if the export is cancelled, the incomplete file is deleted.
+ * The output can be gzip compressed and split into several files, see
+ * {@link GraphFiles}.
+ *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 16.11.12 11:57
  */
@@ -51,11 +70,11 @@ public class ExportAction extends AbstractSwingAction {
   private void updateNames() {
     if (isExportAll()) {
       putValue(NAME, "Export complete graph");
-      putValue(SHORT_DESCRIPTION, "Exports the complete graph in a GraphML file");
+      putValue(SHORT_DESCRIPTION, "Exports the complete graph in a GraphML or CSV file");
       putValue(SMALL_ICON, NeoSwingUtil.icon("database_save"));
     } else {
       putValue(NAME, "Export the graph view");
-      putValue(SHORT_DESCRIPTION, "Exports the current graph view in a GraphML file");
+      putValue(SHORT_DESCRIPTION, "Exports the current graph view in a GraphML or CSV file");
       putValue(SMALL_ICON, NeoSwingUtil.icon("database_table"));
     }
   }
@@ -71,36 +90,86 @@ public class ExportAction extends AbstractSwingAction {
 
   @Override
   public void actionPerformed(final ActionEvent e) {
-    NeoSwingUtil.chooseSingleFile(e, "Export Graph", new Function<File, Object>() {
+    // the view may only be read on the EDT, so its elements are collected here
+    final List<Vertex> viewVertices = isExportAll() ? null : new ArrayList<Vertex>(model.getGraph().getVertices());
+    final List<Edge> viewEdges = isExportAll() ? null : new ArrayList<Edge>(model.getGraph().getEdges());
+    final ExportOptionsPanel options = new ExportOptionsPanel();
+    NeoSwingUtil.chooseSingleFile(e, "Export Graph", options, new Function<File, Object>() {
       @Override
       public Object apply(final File file) {
-        model.execute(new DbAction<Object, Object>() {
+        options.remember();
+        final boolean gzip = options.isCompress();
+        final long chunkSize = options.getChunkSize();
+        // the size of the complete graph is unknown, the dialog is then indeterminate
+        final ProgressDialog monitor = new ProgressDialog(getWindow(e), "Exporting", "Exporting to " + file.getName());
+        final DbAction<Boolean, Long> action = new DbAction<Boolean, Long>() {
           @Override
-          protected Object doInTx(GraphModel model) throws Exception {
-            Graph g = model.getDatabase().getDelegate();
-            if (!isExportAll()) {
-              g = new TinkerGraph();
-              NeoSwingUtil.copyView(model.getGraph(), g);
-            }
+          public DbScheduler.Priority getPriority() {
+            return DbScheduler.Priority.BULK;
+          }
 
-            GraphMLWriter writer = new GraphMLWriter(g);
+          @Override
+          protected Boolean doInTx(GraphModel model) throws Exception {
+            GraphDb db = model.getDatabase();
+            Iterable<Vertex> vertices = isExportAll() ? db.getVertices() : viewVertices;
+            Iterable<Edge> edges = isExportAll() ? db.getEdges() : viewEdges;
+            // both passes over the view, unknown for the complete graph
+            final long total = isExportAll() ? -1 : 2L * (viewVertices.size() + viewEdges.size());
+            GraphFormat format = GraphFormat.forFile(file);
+            boolean completed;
             try {
-              FileOutputStream fos = new FileOutputStream(file);
-              writer.outputGraph(new BufferedOutputStream(fos));
-              fos.flush();
-              fos.close();
+              completed = format.write(file, gzip, chunkSize, vertices, edges, new Progress() {
+                @Override
+                public boolean update(long elements) {
+                  publish(elements);
+                  if (total > 0) {
+                    setProgress((int) Math.min(99, elements * 100 / total));
+                  }
+                  return !isCancelled();
+                }
+              });
             } catch (IOException e1) {
               log.error("Unable to export Graph", e1);
               throw e1;
             }
-            return null;
+            if (!completed && !format.delete(file)) {
+              log.warn("Unable to delete incomplete export file '" + file + "'");
+            }
+            return completed;
+          }
+
+          @Override
+          protected void process(List<Long> chunks) {
+            monitor.setNote(chunks.get(chunks.size() - 1) + " elements");
+            if (monitor.isCanceled()) {
+              cancel(false);
+            }
           }
 
           @Override
           protected void done() {
-            safeGet();
+            monitor.close();
+            if (!isCancelled()) {
+              safeGet();
+            }
+          }
+        };
+        action.addPropertyChangeListener(new PropertyChangeListener() {
+          @Override
+          public void propertyChange(PropertyChangeEvent evt) {
+            if ("progress".equals(evt.getPropertyName())) {
+              monitor.setProgress((Integer) evt.getNewValue());
+            }
+          }
+        });
+        monitor.setCancelListener(new ActionListener() {
+          @Override
+          public void actionPerformed(ActionEvent e) {
+            action.cancel(false);
           }
         });
+        monitor.start();
+        model.execute(action);
         return null;
       }
     });
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.actions;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.DbScheduler;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
+import org.eknet.neoswing.GraphDb;
+import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.utils.Dialogs;
+import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds a shortest path between two vertices and adds it to the view.
+ * <p/>
+ * The path is searched by a breadth first search that starts at both
+ * vertices and always extends the smaller frontier, ignoring the edge
+ * direction. The search runs in one transaction and gives up after
+ * {@link #getMaxDepth()} edges or when more than {@link #getMaxVisited()}
+ * vertices have been visited. The user is told which limit stopped the
+ * search, or whether the vertices are not connected at all.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 13:40
+ */
+public class FindPathAction extends AbstractSwingAction {
+  private static final Logger log = LoggerFactory.getLogger(FindPathAction.class);
+
+  private final GraphModel model;
+  private final ElementId<Vertex> from;
+  private final ElementId<Vertex> to;
+
+  /**
+   * The outcome of a path search.
+   */
+  private static enum Result {
+    FOUND,
+    /** the vertices are not connected */
+    NO_PATH,
+    /** no path with at most maxDepth edges */
+    TOO_LONG,
+    /** more than maxVisited vertices have been visited */
+    TOO_MANY_VISITED,
+    /** one of the vertices has been deleted */
+    MISSING
+  }
+
+  private int maxDepth = 8;
+  private int maxVisited = 200000;
+
+  public FindPathAction(GraphModel model, ElementId<Vertex> from, ElementId<Vertex> to) {
+    this.model = model;
+    this.from = from;
+    this.to = to;
+
+    putValue(NAME, "Find path to picked node");
+    putValue(SHORT_DESCRIPTION, "Adds a shortest path between this and the picked node to the view");
+    putValue(SMALL_ICON, NeoSwingUtil.icon("connect"));
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public void setMaxDepth(int maxDepth) {
+    this.maxDepth = maxDepth;
+  }
+
+  public int getMaxVisited() {
+    return maxVisited;
+  }
+
+  public void setMaxVisited(int maxVisited) {
+    this.maxVisited = maxVisited;
+  }
+
+  @Override
+  public void actionPerformed(final ActionEvent e) {
+    model.execute(new DbAction<Result, GraphBatch>() {
+      @Override
+      public DbScheduler.Priority getPriority() {
+        return DbScheduler.Priority.QUERY;
+      }
+
+      @Override
+      protected Result doInTx(GraphModel model) {
+        GraphDb db = model.getDatabase();
+        Vertex start = db.lookup(from);
+        Vertex end = db.lookup(to);
+        if (start == null || end == null) {
+          return Result.MISSING;
+        }
+        List<Edge> path = new ArrayList<Edge>();
+        Result result = findPath(start, end, path);
+        if (result != Result.FOUND) {
+          return result;
+        }
+        GraphBatch batch = new GraphBatch(path.size() + 1);
+        batch.addVertex(start);
+        for (Edge edge : path) {
+          batch.addEdge(edge);
+        }
+        publish(batch);
+        return result;
+      }
+
+      @Override
+      protected void process(List<GraphBatch> chunks) {
+        getModel().applyBatch(GraphBatch.merge(chunks));
+      }
+
+      @Override
+      protected void done() {
+        Result result = safeGet();
+        if (result == null) {
+          return;
+        }
+        switch (result) {
+          case NO_PATH:
+            Dialogs.error(getWindow(e), "The nodes are not connected.");
+            break;
+          case TOO_LONG:
+            Dialogs.error(getWindow(e), "No path found with at most " + maxDepth + " edges.");
+            break;
+          case TOO_MANY_VISITED:
+            Dialogs.error(getWindow(e), "No path found after visiting " + maxVisited + " nodes. "
+                + "A longer path may exist.");
+            break;
+          case MISSING:
+            Dialogs.error(getWindow(e), "One of the nodes has been deleted.");
+            break;
+        }
+      }
+    });
+  }
+
+  /**
+   * Searches a shortest path between the two vertices.
+   *
+   * @param start
+   * @param end
+   * @param path receives the edges of the path from start to end
+   * @return {@link Result#FOUND} or why there is no path within the limits
+   */
+  private Result findPath(Vertex start, Vertex end, List<Edge> path) {
+    if (start.getId().equals(end.getId())) {
+      return Result.FOUND;
+    }
+    // the edge by which a vertex has been reached, keyed by vertex id
+    Map<Object, Edge> forward = new HashMap<Object, Edge>();
+    Map<Object, Edge> backward = new HashMap<Object, Edge>();
+    forward.put(start.getId(), null);
+    backward.put(end.getId(), null);
+    List<Vertex> forwardFrontier = Collections.singletonList(start);
+    List<Vertex> backwardFrontier = Collections.singletonList(end);
+
+    for (int depth = 0; depth < maxDepth; depth++) {
+      boolean forwardStep = forwardFrontier.size() <= backwardFrontier.size();
+      List<Vertex> frontier = forwardStep ? forwardFrontier : backwardFrontier;
+      Map<Object, Edge> visited = forwardStep ? forward : backward;
+      Map<Object, Edge> other = forwardStep ? backward : forward;
+      List<Vertex> next = new ArrayList<Vertex>();
+      for (Vertex v : frontier) {
+        for (Edge edge : v.getEdges(Direction.BOTH)) {
+          Vertex n = GraphDb.getOtherNode(edge, v);
+          Object id = n.getId();
+          if (visited.containsKey(id)) {
+            continue;
+          }
+          visited.put(id, edge);
+          if (other.containsKey(id)) {
+            log.debug("Found path after visiting " + (forward.size() + backward.size()) + " vertices");
+            joinPath(n, forward, backward, path);
+            return Result.FOUND;
+          }
+          next.add(n);
+          if (forward.size() + backward.size() > maxVisited) {
+            log.info("Path search stopped after visiting " + maxVisited + " vertices");
+            return Result.TOO_MANY_VISITED;
+          }
+        }
+      }
+      if (next.isEmpty()) {
+        return Result.NO_PATH;
+      }
+      if (forwardStep) {
+        forwardFrontier = next;
+      } else {
+        backwardFrontier = next;
+      }
+    }
+    return Result.TOO_LONG;
+  }
+
+  private static void joinPath(Vertex meet, Map<Object, Edge> forward, Map<Object, Edge> backward, List<Edge> path) {
+    Vertex v = meet;
+    Edge edge;
+    while ((edge = forward.get(v.getId())) != null) {
+      path.add(edge);
+      v = GraphDb.getOtherNode(edge, v);
+    }
+    Collections.reverse(path);
+    v = meet;
+    while ((edge = backward.get(v.getId())) != null) {
+      path.add(edge);
+      v = GraphDb.getOtherNode(edge, v);
+    }
+  }
+}
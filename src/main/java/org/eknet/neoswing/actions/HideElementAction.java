@@ -21,6 +21,7 @@ import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Vertex;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphModel;
 
 import java.awt.event.ActionEvent;
@@ -44,24 +45,23 @@ public class HideElementAction extends AbstractSwingAction {
 
   @Override
   public void actionPerformed(ActionEvent e) {
-    graphModel.execute(new DbAction<Object, Element>() {
+    graphModel.execute(new DbAction<Object, GraphBatch>() {
       @Override
       protected Object doInTx(GraphModel model) {
         Element el = model.getDatabase().lookup(element);
-        publish(el);
+        if (el instanceof Vertex) {
+          publish(new GraphBatch(1).removeVertex((Vertex) el));
+        }
+        if (el instanceof Edge) {
+          publish(new GraphBatch(1).removeEdge((Edge) el));
+        }
         return null;
       }
 
       @Override
-      protected void process(List<Element> chunks) {
-        for (Element el : chunks) {
-          if (element.isVertex()) {
-            graphModel.getGraph().removeVertex((Vertex) el);
-          }
-          if (element.isEdge()) {
-            graphModel.getGraph().removeEdge((Edge) el);
-          }
-        }
+      protected void process(List<GraphBatch> chunks) {
+        // the batch maps the elements to the detached ones of a restored view
+        getModel().applyBatch(GraphBatch.merge(chunks));
       }
     });
 
@@ -16,22 +16,43 @@
 
 package org.eknet.neoswing.actions;
 
-import com.tinkerpop.blueprints.util.io.graphml.GraphMLReader;
 import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.DbScheduler;
+import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.io.BulkImporter;
+import org.eknet.neoswing.io.GraphFiles;
+import org.eknet.neoswing.io.GraphFormat;
+import org.eknet.neoswing.io.GraphImporter;
+import org.eknet.neoswing.io.GraphSource;
+import org.eknet.neoswing.io.Progress;
 import org.eknet.neoswing.utils.Function;
 import org.eknet.neoswing.utils.NeoSwingUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.swing.ProgressMonitor;
 import java.awt.event.ActionEvent;
-import java.io.BufferedInputStream;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.List;
 
 /**
+ * Imports a GraphML file or CSV files into the database. The format is
+ * chosen by the file name, see {@link GraphFormat#forFile(java.io.File)}.
+ * <p/>
+ * The file is streamed and the transaction is committed every
+ * {@link #getCommitInterval()} elements, so files of any size can be
+ * imported. A progress monitor shows how much of the file has been read;
+ * if the import is cancelled, the elements read so far are kept.
+ * If the database is empty, the file is loaded by several threads using
+ * the {@link BulkImporter}.
+ * <p/>
+ * Compressed and split files written by {@link ExportAction} are
+ * recognized, see {@link GraphFiles}.
+ *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 16.11.12 12:27
  */
@@ -39,41 +60,123 @@ public class ImportAction extends AbstractSwingAction {
   private static final Logger log = LoggerFactory.getLogger(ImportAction.class);
 
   private final GraphModel model;
+  private int commitInterval = GraphImporter.DEFAULT_COMMIT_INTERVAL;
+  private boolean bulkLoading = true;
 
   public ImportAction(GraphModel model) {
     this.model = model;
-    putValue(NAME, "Import GraphML file");
-    putValue(SHORT_DESCRIPTION, "Imports a graph from a GraphML xml file into this database.");
+    putValue(NAME, "Import GraphML or CSV file");
+    putValue(SHORT_DESCRIPTION, "Imports a graph from a GraphML xml file or CSV files (*.csv) into this database.");
     putValue(SMALL_ICON, NeoSwingUtil.icon("database_go"));
   }
 
+  public boolean isBulkLoading() {
+    return bulkLoading;
+  }
+
+  /**
+   * Whether to use the {@link BulkImporter} if the database is empty.
+   *
+   * @param bulkLoading
+   */
+  public void setBulkLoading(boolean bulkLoading) {
+    this.bulkLoading = bulkLoading;
+  }
+
+  public int getCommitInterval() {
+    return commitInterval;
+  }
+
+  public void setCommitInterval(int commitInterval) {
+    this.commitInterval = commitInterval;
+  }
+
   @Override
   public void actionPerformed(final ActionEvent e) {
     NeoSwingUtil.chooseSingleFile(e, "Import Graph", new Function<File, Object>() {
       @Override
       public Object apply(final File file) {
-        model.execute(new DbAction<Object, Object>() {
+        final ProgressMonitor monitor = new ProgressMonitor(getWindow(e), "Importing " + file.getName(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(500);
+        final DbAction<Long, Long> action = new DbAction<Long, Long>() {
+          @Override
+          public DbScheduler.Priority getPriority() {
+            return DbScheduler.Priority.BULK;
+          }
+
           @Override
-          protected Object doInTx(GraphModel model) throws Exception {
-            GraphMLReader reader = new GraphMLReader(model.getDatabase().getDelegate());
-            reader.setVertexIdKey("id");
-            reader.setEdgeIdKey("id");
-            reader.setEdgeLabelKey("label");
+          protected Long doInTx(GraphModel model) throws Exception {
+            GraphDb db = model.getDatabase();
+            final GraphSource source = GraphFormat.forFile(file).openSource(file);
+            final long total = Math.max(1, source.getLength());
             try {
-              InputStream fin = new BufferedInputStream(new FileInputStream(file));
-              reader.inputGraph(fin);
+              if (bulkLoading && !db.getVertices().iterator().hasNext()) {
+                log.info("Database is empty, bulk loading '" + file + "'");
+                return new BulkImporter(db).read(source, new Progress() {
+                  private long last;
+                  private int pass;
+
+                  @Override
+                  public synchronized boolean update(long elements) {
+                    publish(elements);
+                    // the source is read twice, the position starts over with the edges
+                    long position = source.getPosition();
+                    if (position < last) {
+                      pass = 1;
+                    }
+                    last = position;
+                    setProgress((int) Math.min(99, (pass * total + position) * 50 / total));
+                    return !isCancelled();
+                  }
+                });
+              }
+              GraphImporter importer = new GraphImporter(db);
+              importer.setCommitInterval(commitInterval);
+              return importer.read(source, new Progress() {
+                @Override
+                public boolean update(long elements) {
+                  publish(elements);
+                  setProgress((int) Math.min(99, source.getPosition() * 100 / total));
+                  return !isCancelled();
+                }
+              });
             } catch (IOException e1) {
               log.error("Error importing graph from file '" + file + "!", e1);
               throw e1;
             }
-            return null;
+          }
+
+          @Override
+          protected void process(List<Long> chunks) {
+            monitor.setNote(chunks.get(chunks.size() - 1) + " elements");
+            if (monitor.isCanceled()) {
+              cancel(false);
+            }
           }
 
           @Override
           protected void done() {
-            safeGet();
+            monitor.close();
+            getModel().getDatabase().getPropertyIndex().rebuild();
+            getModel().getDatabase().rebuildRelationshipTypes();
+            getModel().getDatabase().getNeighborhoodCache().clear();
+            if (!isCancelled()) {
+              safeGet();
+            }
+          }
+        };
+        action.addPropertyChangeListener(new PropertyChangeListener() {
+          @Override
+          public void propertyChange(PropertyChangeEvent evt) {
+            if ("progress".equals(evt.getPropertyName())) {
+              monitor.setProgress((Integer) evt.getNewValue());
+            }
+            if (monitor.isCanceled()) {
+              action.cancel(false);
+            }
           }
         });
+        model.execute(action);
         return null;
       }
     });
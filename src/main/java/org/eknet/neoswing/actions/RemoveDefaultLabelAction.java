@@ -58,8 +58,14 @@ public class RemoveDefaultLabelAction extends AbstractAction {
         Element el = model.getDatabase().lookup(element);
         String key = DefaultVisualizationViewFactory.createDefaultLabelPrefKey(el, model.getDatabase());
         NeoSwingUtil.getPrefs().remove(key);
+        model.getDatabase().getLabelCache().invalidate(element);
         return null;
       }
+
+      @Override
+      protected void done() {
+        getModel().getViewer().repaint();
+      }
     });
   }
 }
@@ -20,17 +20,47 @@ import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Vertex;
 import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.DbScheduler;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.io.Progress;
+import org.eknet.neoswing.search.ParallelScan;
+import org.eknet.neoswing.search.PropertyIndex;
+import org.eknet.neoswing.search.Query;
+import org.eknet.neoswing.search.QueryParser;
+import org.eknet.neoswing.search.QueryPlanner;
 import org.eknet.neoswing.utils.Dialog;
+import org.eknet.neoswing.utils.Dialogs;
+import org.eknet.neoswing.utils.Function;
 import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.eknet.neoswing.utils.ProgressDialog;
+import org.eknet.neoswing.view.SearchResultPanel;
 import org.eknet.neoswing.view.SearchView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
+ * Searches vertices or edges by a property value and shows them in a
+ * {@link SearchResultPanel}, from where they can be added to the view.
+ * Results are loaded page by page as the table is scrolled.
+ * <p/>
+ * With full text search, the words of the value are looked up in the
+ * {@link PropertyIndex} of the database. While the index is being built,
+ * the database is scanned instead. Such scans and searches with the
+ * parallel scan option use a {@link ParallelScan}, which stops after
+ * {@link #getMaxResults()} matches or when the search is cancelled.
+ * <p/>
+ * If a query is given, it is parsed by {@link QueryParser} and run as
+ * planned by the {@link QueryPlanner}.
+ *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 12.01.12 16:23
  */
@@ -39,7 +69,10 @@ public class SearchAction extends AbstractSwingAction {
   
   private GraphModel model;
   private SearchView searchView;
-  
+  private int maxResults = 1000;
+  private Dialog resultDialog;
+  private SearchResultPanel resultPanel;
+
   public SearchAction(GraphModel model) {
     this.model = model;
     this.searchView = new SearchView();
@@ -48,6 +81,20 @@ public class SearchAction extends AbstractSwingAction {
     putValue(SMALL_ICON, NeoSwingUtil.icon("find"));
   }
 
+  public int getMaxResults() {
+    return maxResults;
+  }
+
+  /**
+   * Sets the maximum number of results of a full text search or a
+   * parallel scan.
+   *
+   * @param maxResults
+   */
+  public void setMaxResults(int maxResults) {
+    this.maxResults = maxResults;
+  }
+
   @Override
   public void actionPerformed(ActionEvent e) {
     Dialog dialog = new Dialog("Select index");
@@ -56,52 +103,182 @@ public class SearchAction extends AbstractSwingAction {
     if (option != Dialog.Option.OK) {
       return;
     }
-    final String type = searchView.getType();
+    final boolean vertices = "Vertex".equals(searchView.getType());
     final String key = searchView.getKey();
     final Object value = searchView.getValue();
+    final boolean fullText = searchView.isFullText();
+    final boolean parallel = searchView.isParallelScan();
+    final String text = searchView.getText();
+    final boolean hasValue = key != null && !key.isEmpty() && value != null;
 
-    model.execute(new DbAction<Object, Element>() {
-      @Override
-      protected Object doInTx(GraphModel model) {
-        if (type.equals("Vertex")) {
-          if (key == null || key.isEmpty() || value == null) {
-            for (Vertex v : model.getDatabase().getVertices()) {
-              publish(v);
-            }
-          } else {
-            for (Vertex v : model.getDatabase().getVertices(key, value)) {
-              publish(v);
-            }
+    Query query = null;
+    if (!searchView.getQuery().isEmpty()) {
+      try {
+        query = QueryParser.parse(searchView.getQuery());
+      } catch (IllegalArgumentException e1) {
+        Dialogs.error(getWindow(e), "Invalid query: " + e1.getMessage());
+        return;
+      }
+    }
+
+    final SearchResultPanel results = showResults(e);
+    PropertyIndex index = model.getDatabase().getPropertyIndex();
+    if (query != null) {
+      final QueryPlanner.Plan plan = new QueryPlanner(model.getDatabase()).plan(query, vertices ? Vertex.class : Edge.class);
+      log.info("Query plan: " + plan);
+      if (plan.isFullScan() && parallel) {
+        results.clear();
+        scan(e, results, vertices, new Function<Element, Boolean>() {
+          @Override
+          public Boolean apply(Element el) {
+            return plan.getQuery().matches(el);
           }
-        } else {
-          if (key == null || key.isEmpty() || value == null) {
-            for (Edge edge : model.getDatabase().getEdges()) {
-              publish(edge);
-            }
-          } else {
-            for (Edge edge : model.getDatabase().getEdges(searchView.getKey(), searchView.getValue())) {
-              publish(edge);
-            }
+        });
+      } else {
+        results.setSource(new Function<GraphDb, Iterable<Element>>() {
+          @Override
+          public Iterable<Element> apply(GraphDb db) {
+            return plan.execute(db);
           }
+        });
+      }
+    } else if (fullText && index.isComplete()) {
+      final Set<ElementId<?>> ids = index.search(key, text, vertices ? Vertex.class : Edge.class, maxResults);
+      results.setSource(new Function<GraphDb, Iterable<Element>>() {
+        @Override
+        public Iterable<Element> apply(GraphDb db) {
+          return lookupAll(db, ids);
         }
-        return null;
+      });
+    } else if (fullText || (parallel && hasValue)) {
+      if (fullText) {
+        log.info("The property index is not complete yet, scanning the database");
+      }
+      results.clear();
+      scan(e, results, vertices, new Function<Element, Boolean>() {
+        @Override
+        public Boolean apply(Element el) {
+          return fullText ? PropertyIndex.matches(el, key, text) : value.equals(el.getProperty(key));
+        }
+      });
+    } else {
+      results.setSource(new Function<GraphDb, Iterable<? extends Element>>() {
+        @Override
+        public Iterable<? extends Element> apply(GraphDb db) {
+          if (vertices) {
+            return hasValue ? db.getVertices(key, value) : db.getVertices();
+          }
+          return hasValue ? db.getEdges(key, value) : db.getEdges();
+        }
+      });
+    }
+  }
+
+  private SearchResultPanel showResults(ActionEvent e) {
+    if (resultDialog == null) {
+      resultPanel = new SearchResultPanel(model, NeoSwingUtil.getFactory(true));
+      resultDialog = new Dialog("Search results");
+      resultDialog.setContent(resultPanel);
+      resultDialog.setShowCancelOption(false);
+    }
+    resultDialog.show(getWindow(e), java.awt.Dialog.ModalityType.MODELESS);
+    return resultPanel;
+  }
+
+  /**
+   * Scans the database with a {@link ParallelScan} and adds the matches
+   * to the result table as they are found.
+   */
+  private void scan(ActionEvent e, final SearchResultPanel results, final boolean vertices,
+                    final Function<Element, Boolean> predicate) {
+    final ProgressDialog monitor = new ProgressDialog(getWindow(e), "Searching", "Scanning the database");
+    final DbAction<Object, SearchResultPanel.Result> action = new DbAction<Object, SearchResultPanel.Result>() {
+      private int found;
+      private volatile long scanned;
+
+      @Override
+      public DbScheduler.Priority getPriority() {
+        return DbScheduler.Priority.QUERY;
+      }
+
+      @Override
+      public Object getCoalesceKey() {
+        // the same key as the page loads, a new search supersedes this scan
+        return results;
       }
 
       @Override
-      protected void process(List<Element> chunks) {
-        for (Element el : chunks) {
-          if (el instanceof Vertex) {
-            Vertex vertex = (Vertex) el;
-            getModel().getGraph().addVertex(vertex);
+      protected Object doInTx(GraphModel model) throws Exception {
+        final GraphDb db = model.getDatabase();
+        ParallelScan scan = new ParallelScan(db);
+        scan.setLimit(maxResults);
+        scan.setProgress(new Progress() {
+          @Override
+          public boolean update(long elements) {
+            scanned = elements;
+            return !isCancelled();
           }
-          if (el instanceof Edge) {
-            Edge edge = (Edge) el;
-            NeoSwingUtil.addEdge(getModel().getGraph(), edge);
+        });
+        scan.scan(vertices ? Vertex.class : Edge.class, predicate, new Function<Element, Boolean>() {
+          @Override
+          public Boolean apply(Element el) {
+            publish(SearchResultPanel.toResult(el, db));
+            return !isCancelled();
           }
+        });
+        return null;
+      }
+
+      @Override
+      protected void process(List<SearchResultPanel.Result> chunks) {
+        if (isCancelled()) {
+          return;
         }
-        getModel().getViewer().repaint();
+        results.addResults(chunks);
+        found += chunks.size();
+        monitor.setNote(found + " found, " + scanned + " scanned");
       }
 
+      @Override
+      protected void done() {
+        monitor.close();
+        if (!isCancelled()) {
+          safeGet();
+        }
+      }
+    };
+    monitor.setCancelListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        action.cancel(false);
+      }
     });
+    monitor.start();
+    model.execute(action);
+  }
+
+  private static Iterable<Element> lookupAll(final GraphDb db, final Collection<ElementId<?>> ids) {
+    return new Iterable<Element>() {
+      @Override
+      public Iterator<Element> iterator() {
+        final Iterator<ElementId<?>> iter = ids.iterator();
+        return new Iterator<Element>() {
+          @Override
+          public boolean hasNext() {
+            return iter.hasNext();
+          }
+
+          @Override
+          public Element next() {
+            return db.lookup(iter.next());
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
   }
 }
@@ -59,8 +59,14 @@ public class SetDefaultLabelAction extends AbstractSwingAction {
         Element el = model.getDatabase().lookup(element);
         String prefKey = DefaultVisualizationViewFactory.createDefaultLabelPrefKey(el, getModel().getDatabase());
         NeoSwingUtil.getPrefs().put(prefKey, key);
+        model.getDatabase().getLabelCache().invalidate(element);
         return null;
       }
+
+      @Override
+      protected void done() {
+        getModel().getViewer().repaint();
+      }
     });
 
   }
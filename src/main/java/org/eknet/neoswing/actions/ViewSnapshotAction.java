@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.actions;
+
+import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.io.ViewSnapshot;
+import org.eknet.neoswing.utils.Dialogs;
+import org.eknet.neoswing.utils.Function;
+import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Saves the current graph view to a {@link ViewSnapshot} file or replaces
+ * the view with a saved one. Neither accesses the database, so this is
+ * done right on the EDT.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 23:20
+ */
+public class ViewSnapshotAction extends AbstractSwingAction {
+  private static final Logger log = LoggerFactory.getLogger(ViewSnapshotAction.class);
+
+  private final GraphModel model;
+  private final boolean save;
+
+  public ViewSnapshotAction(GraphModel model, boolean save) {
+    this.model = model;
+    this.save = save;
+    if (save) {
+      putValue(NAME, "Save view");
+      putValue(SHORT_DESCRIPTION, "Saves the current graph view with its layout to a file");
+      putValue(SMALL_ICON, NeoSwingUtil.icon("chart_organisation"));
+    } else {
+      putValue(NAME, "Load view");
+      putValue(SHORT_DESCRIPTION, "Replaces the current graph view with a saved one");
+      putValue(SMALL_ICON, NeoSwingUtil.icon("folder_database"));
+    }
+  }
+
+  @Override
+  public void actionPerformed(final ActionEvent e) {
+    NeoSwingUtil.chooseSingleFile(e, save ? "Save View" : "Load View", new Function<File, Object>() {
+      @Override
+      public Object apply(File file) {
+        try {
+          if (save) {
+            ViewSnapshot.write(file, model.getGraph(), model.getViewer().getGraphLayout(),
+                model.getDatabase().getLabelCache());
+          } else {
+            ViewSnapshot snapshot = ViewSnapshot.read(file, model.getDatabase());
+            snapshot.applyTo(model);
+            log.info("Loaded " + snapshot.getVertexCount() + " vertices and "
+                + snapshot.getEdgeCount() + " edges from '" + file + "'");
+          }
+        } catch (IOException e1) {
+          log.error("Unable to " + (save ? "save" : "load") + " view '" + file + "'", e1);
+          Dialogs.error(getWindow(e), e1.getMessage());
+        }
+        return null;
+      }
+    });
+  }
+}
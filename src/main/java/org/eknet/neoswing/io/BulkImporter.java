@@ -0,0 +1,495 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.GraphDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads a graph into an empty database using several threads.
+ * <p/>
+ * The source is read twice. The first pass only creates the vertices, the
+ * second only the edges, which then find all their end points in a
+ * concurrent map from file ids to database ids. Vertices that are only
+ * referenced by edges are created before the edges that need them. In
+ * both passes the parsed elements are collected into batches, and each
+ * batch is written by a worker thread in its own transaction. The parser
+ * is slowed down if the workers fall behind. A failed batch is retried a
+ * few times, as concurrent batches may deadlock on shared vertices.
+ * <p/>
+ * Vertices are not looked up before they are created, so the database
+ * should be empty; otherwise elements are added twice.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:50
+ */
+public class BulkImporter {
+  private static final Logger log = LoggerFactory.getLogger(BulkImporter.class);
+
+  public static final int DEFAULT_BATCH_SIZE = 5000;
+
+  private static final int MAX_ATTEMPTS = 5;
+
+  private static final String orientPackage = "com.tinkerpop.blueprints.impls.orient.";
+
+  private final GraphDb db;
+  private final int threads;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private String idKey = "id";
+
+  public BulkImporter(GraphDb db) {
+    this(db, defaultThreads(db));
+  }
+
+  public BulkImporter(GraphDb db, int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+    }
+    this.db = db;
+    this.threads = threads;
+  }
+
+  /**
+   * Returns the number of threads to use for the given database. OrientDB
+   * graphs must only be written by one thread, for others this is the
+   * number of cores.
+   *
+   * @param db
+   * @return
+   */
+  public static int defaultThreads(GraphDb db) {
+    if (db.getDelegate().getClass().getName().startsWith(orientPackage)) {
+      return 1;
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public String getIdKey() {
+    return idKey;
+  }
+
+  public void setIdKey(String idKey) {
+    this.idKey = idKey;
+  }
+
+  /**
+   * Imports the given source.
+   *
+   * @param source
+   * @param progress is told the number of elements written
+   * @return the number of elements written
+   * @throws IOException
+   */
+  public long read(GraphSource source, Progress progress) throws IOException {
+    final ConcurrentMap<String, Object> vertexIds = new ConcurrentHashMap<String, Object>();
+    Run run = new Run(progress);
+    try {
+      if (pass(source, new VertexPass(run, vertexIds), run)) {
+        pass(source, new EdgePass(run, vertexIds), run);
+      }
+    } finally {
+      run.shutdown();
+    }
+    progress.update(run.count.get());
+    return run.count.get();
+  }
+
+  private boolean pass(GraphSource source, Pass pass, Run run) throws IOException {
+    try {
+      source.read(pass);
+      pass.flush();
+    } finally {
+      run.awaitIdle();
+    }
+    run.checkError();
+    return !run.cancelled;
+  }
+
+  /**
+   * The state of one import shared by both passes.
+   */
+  private final class Run {
+    private final Progress progress;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicReference<RuntimeException> error = new AtomicReference<RuntimeException>();
+    private final Random random = new Random();
+    private volatile boolean cancelled = false;
+
+    private Run(Progress progress) {
+      this.progress = progress;
+      // a full queue blocks the parser, so it cannot run away
+      this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(threads * 2), new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "neoswing-import-" + counter.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      }, new RejectedExecutionHandler() {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+          try {
+            executor.getQueue().put(r);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for import threads", e);
+          }
+        }
+      });
+    }
+
+    private boolean isActive() {
+      return !cancelled && error.get() == null;
+    }
+
+    private void submit(final Runnable batch, final int size) {
+      running.incrementAndGet();
+      try {
+        executor.execute(task(batch, size));
+      } catch (RejectedExecutionException e) {
+        cancelled = true;
+        done();
+      }
+    }
+
+    /**
+     * Submits the batch and waits until it has been committed.
+     */
+    private void submitAndWait(final Runnable batch, final int size) {
+      final CountDownLatch committed = new CountDownLatch(1);
+      submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            batch.run();
+          } finally {
+            committed.countDown();
+          }
+        }
+      }, size);
+      try {
+        // the task may have been skipped, if the import has been cancelled
+        while (isActive() && !committed.await(100, TimeUnit.MILLISECONDS)) {
+          // wait
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled = true;
+      }
+    }
+
+    private Runnable task(final Runnable batch, final int size) {
+      return new Runnable() {
+        @Override
+        public void run() {
+          try {
+            if (isActive()) {
+              writeWithRetries(batch);
+              long n = count.addAndGet(size);
+              if (!progress.update(n)) {
+                cancelled = true;
+              }
+            }
+          } catch (RuntimeException e) {
+            log.error("Error writing batch", e);
+            error.compareAndSet(null, e);
+          } finally {
+            done();
+          }
+        }
+      };
+    }
+
+    private void done() {
+      synchronized (running) {
+        running.decrementAndGet();
+        running.notifyAll();
+      }
+    }
+
+    /**
+     * Writes the batch, retrying it if it fails. Concurrent batches that
+     * share a vertex lock it in different orders, so a backend may abort
+     * one of them to resolve a deadlock.
+     */
+    private void writeWithRetries(Runnable batch) {
+      for (int attempt = 1; ; attempt++) {
+        try {
+          write(batch);
+          return;
+        } catch (RuntimeException e) {
+          if (attempt >= MAX_ATTEMPTS || !isActive()) {
+            throw e;
+          }
+          log.warn("Error writing batch, retrying (" + attempt + "/" + MAX_ATTEMPTS + "): " + e);
+          try {
+            Thread.sleep(50L * attempt + random.nextInt(50));
+          } catch (InterruptedException e1) {
+            Thread.currentThread().interrupt();
+            throw e;
+          }
+        }
+      }
+    }
+
+    private void write(Runnable batch) {
+      GraphDb.Tx tx = db.beginTx();
+      boolean written = false;
+      try {
+        batch.run();
+        tx.success();
+        written = true;
+      } finally {
+        try {
+          tx.finish();
+        } catch (IllegalStateException e) {
+          // the transaction has been rolled back, keep the error of the batch
+          if (written) {
+            throw e;
+          }
+        }
+      }
+    }
+
+    private void awaitIdle() throws IOException {
+      synchronized (running) {
+        while (running.get() > 0) {
+          try {
+            running.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            throw new IOException("Interrupted while waiting for import threads");
+          }
+        }
+      }
+    }
+
+    /**
+     * Stops the worker threads after their current batch. They are not
+     * interrupted, see {@link org.eknet.neoswing.DbScheduler}.
+     */
+    private void shutdown() {
+      executor.shutdown();
+      try {
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+          log.debug("Waiting for import threads to finish");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void checkError() {
+      RuntimeException e = error.get();
+      if (e != null) {
+        throw e;
+      }
+    }
+  }
+
+  private abstract class Pass implements GraphHandler {
+    protected final Run run;
+    protected final ConcurrentMap<String, Object> vertexIds;
+
+    protected Pass(Run run, ConcurrentMap<String, Object> vertexIds) {
+      this.run = run;
+      this.vertexIds = vertexIds;
+    }
+
+    abstract void flush();
+  }
+
+  private final class VertexPass extends Pass {
+    private List<String> ids = new ArrayList<String>(batchSize);
+    private List<Map<String, Object>> props = new ArrayList<Map<String, Object>>(batchSize);
+
+    private VertexPass(Run run, ConcurrentMap<String, Object> vertexIds) {
+      super(run, vertexIds);
+    }
+
+    @Override
+    public boolean vertex(String id, Map<String, Object> properties) {
+      ids.add(id);
+      props.add(properties);
+      if (ids.size() >= batchSize) {
+        flush();
+      }
+      return run.isActive();
+    }
+
+    @Override
+    public boolean edge(String id, String source, String target, String label, Map<String, Object> properties) {
+      return run.isActive();
+    }
+
+    @Override
+    void flush() {
+      if (ids.isEmpty()) {
+        return;
+      }
+      final List<String> batchIds = ids;
+      final List<Map<String, Object>> batchProps = props;
+      ids = new ArrayList<String>(batchSize);
+      props = new ArrayList<Map<String, Object>>(batchSize);
+      run.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < batchIds.size(); i++) {
+            Map<String, Object> p = batchProps.get(i);
+            Vertex v = db.createNode(p.remove(idKey));
+            GraphImporter.setProperties(v, p);
+            vertexIds.put(batchIds.get(i), v.getId());
+          }
+        }
+      }, batchIds.size());
+    }
+  }
+
+  private final class EdgePass extends Pass {
+    private List<EdgeRecord> edges = new ArrayList<EdgeRecord>(batchSize);
+    private final Set<String> missing = new LinkedHashSet<String>();
+
+    private EdgePass(Run run, ConcurrentMap<String, Object> vertexIds) {
+      super(run, vertexIds);
+    }
+
+    @Override
+    public boolean vertex(String id, Map<String, Object> properties) {
+      return run.isActive();
+    }
+
+    @Override
+    public boolean edge(String id, String source, String target, String label, Map<String, Object> properties) {
+      edges.add(new EdgeRecord(source, target, label, properties));
+      if (!vertexIds.containsKey(source)) {
+        missing.add(source);
+      }
+      if (!vertexIds.containsKey(target)) {
+        missing.add(target);
+      }
+      if (edges.size() >= batchSize) {
+        flush();
+      }
+      return run.isActive();
+    }
+
+    @Override
+    void flush() {
+      if (edges.isEmpty()) {
+        return;
+      }
+      createMissing();
+      final List<EdgeRecord> batch = edges;
+      edges = new ArrayList<EdgeRecord>(batchSize);
+      run.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (EdgeRecord r : batch) {
+            Vertex out = lookup(r.source);
+            Vertex in = lookup(r.target);
+            Edge e = db.createEdge(r.properties.remove(idKey), out, in, r.label);
+            GraphImporter.setProperties(e, r.properties);
+          }
+        }
+      }, batch.size());
+    }
+
+    /**
+     * Creates the vertices that are only referenced by edges. They are
+     * written by a worker in its own transaction, like any other batch,
+     * and the parser waits until they are committed before it submits the
+     * edges, so that every worker finds them. The parser thread itself
+     * runs inside the transaction of the import action, which would only
+     * commit them at the very end.
+     */
+    private void createMissing() {
+      if (missing.isEmpty() || !run.isActive()) {
+        return;
+      }
+      final List<String> fileIds = new ArrayList<String>(missing);
+      missing.clear();
+      run.submitAndWait(new Runnable() {
+        @Override
+        public void run() {
+          // all vertices of the file are known by now, so these are really missing
+          for (String fileId : fileIds) {
+            vertexIds.put(fileId, db.createNode().getId());
+          }
+        }
+      }, fileIds.size());
+    }
+
+    private Vertex lookup(String fileId) {
+      Object dbId = vertexIds.get(fileId);
+      if (dbId == null) {
+        throw new IllegalStateException("Edge refers to unknown vertex '" + fileId + "'");
+      }
+      return db.lookupVertex(dbId);
+    }
+  }
+
+  private static final class EdgeRecord {
+    private final String source;
+    private final String target;
+    private final String label;
+    private final Map<String, Object> properties;
+
+    private EdgeRecord(String source, String target, String label, Map<String, Object> properties) {
+      this.source = source;
+      this.target = target;
+      this.label = label;
+      this.properties = properties;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes to a sequence of files of bounded size. The files are named like
+ * the given file with the suffix {@code .part0000}, {@code .part0001} and
+ * so on. {@link GraphFiles#openRaw(File)} reads them back as one stream.
+ * <p/>
+ * The stream is not buffered.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 19:40
+ */
+public class ChunkedFileOutputStream extends OutputStream {
+
+  private final File file;
+  private final long chunkSize;
+
+  private OutputStream current;
+  private long written;
+  private int part = -1;
+
+  public ChunkedFileOutputStream(File file, long chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    this.file = file;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensurePart();
+    current.write(b);
+    written++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      ensurePart();
+      int n = (int) Math.min(len, chunkSize - written);
+      current.write(b, off, n);
+      written += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (current != null) {
+      current.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (current != null) {
+      current.close();
+      current = null;
+    }
+  }
+
+  /**
+   * The number of files written so far.
+   *
+   * @return
+   */
+  public int getPartCount() {
+    return part + 1;
+  }
+
+  private void ensurePart() throws IOException {
+    if (current == null || written >= chunkSize) {
+      close();
+      part++;
+      current = new FileOutputStream(GraphFiles.partFile(file, part));
+      written = 0;
+    }
+  }
+}
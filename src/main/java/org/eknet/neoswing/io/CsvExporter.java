@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes vertices and edges in the CSV format read by {@link CsvParser}.
+ * <p/>
+ * Like {@link GraphMLExporter}, the elements are read twice: first to
+ * collect the property keys for the header and then to write them.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:55
+ */
+public class CsvExporter {
+
+  private static final int progressInterval = 1000;
+
+  private long count;
+  private Progress progress;
+
+  /**
+   * Writes the vertex file.
+   *
+   * @return {@code false} if cancelled
+   */
+  public boolean writeVertices(OutputStream out, Iterable<? extends Vertex> vertices, Progress progress) throws IOException {
+    return write(out, vertices, false, progress);
+  }
+
+  /**
+   * Writes the edge file.
+   *
+   * @return {@code false} if cancelled
+   */
+  public boolean writeEdges(OutputStream out, Iterable<? extends Edge> edges, Progress progress) throws IOException {
+    return write(out, edges, true, progress);
+  }
+
+  /**
+   * The number of elements processed in both passes of all files written
+   * so far.
+   *
+   * @return
+   */
+  public long getCount() {
+    return count;
+  }
+
+  private boolean write(OutputStream out, Iterable<? extends Element> elements, boolean edges, Progress progress) throws IOException {
+    this.progress = progress;
+    try {
+      Map<String, String> keys = new TreeMap<String, String>();
+      for (Element el : elements) {
+        GraphMLExporter.collectKeys(el, keys);
+        if (!step()) {
+          return false;
+        }
+      }
+      List<String> names = new ArrayList<String>(keys.keySet());
+
+      CsvWriter writer = new CsvWriter(new OutputStreamWriter(out, "UTF-8"));
+      if (edges) {
+        for (String col : CsvParser.edgeColumns) {
+          writer.field(col);
+        }
+      } else {
+        writer.field("id");
+      }
+      for (String name : names) {
+        writer.field(name + ":" + keys.get(name));
+      }
+      writer.endRecord();
+
+      for (Element el : elements) {
+        if (edges) {
+          Edge e = (Edge) el;
+          writer.field(e.getVertex(Direction.OUT).getId().toString());
+          writer.field(e.getVertex(Direction.IN).getId().toString());
+          writer.field(e.getLabel());
+        } else {
+          writer.field(el.getId().toString());
+        }
+        for (String name : names) {
+          Object value = el.getProperty(name);
+          writer.field(value == null ? null : value.toString());
+        }
+        writer.endRecord();
+        if (!step()) {
+          return false;
+        }
+      }
+      writer.flush();
+      progress.update(count);
+      return true;
+    } finally {
+      this.progress = null;
+    }
+  }
+
+  private boolean step() {
+    count++;
+    return count % progressInterval != 0 || progress.update(count);
+  }
+}
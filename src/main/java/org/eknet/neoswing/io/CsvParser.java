@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses vertex and edge files in CSV format.
+ * <p/>
+ * The first record is the header. A vertex file has the header
+ * {@code id,<property>...}, an edge file {@code source,target,label,<property>...}.
+ * Each property column may declare its type after a colon, for example
+ * {@code age:int}; the types are those of GraphML and {@code string} is
+ * the default. Empty fields are skipped, so a property can be absent.
+ * <p/>
+ * An edge file can be read without a vertex file, then the vertices are
+ * created as they are referenced.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:40
+ */
+public class CsvParser implements GraphParser {
+
+  static final String[] edgeColumns = new String[] { "source", "target", "label" };
+
+  @Override
+  public boolean parse(InputStream in, GraphHandler handler) throws IOException {
+    CsvReader reader = new CsvReader(new InputStreamReader(in, "UTF-8"));
+    List<String> header = reader.next();
+    if (header == null) {
+      return true;
+    }
+    boolean edges;
+    if (header.size() >= 1 && "id".equals(header.get(0))) {
+      edges = false;
+    } else if (header.size() >= 3 && edgeColumns[0].equals(header.get(0))
+        && edgeColumns[1].equals(header.get(1)) && edgeColumns[2].equals(header.get(2))) {
+      edges = true;
+    } else {
+      throw new IOException("Unknown CSV header, expected 'id,...' or 'source,target,label,...': " + header);
+    }
+    int first = edges ? 3 : 1;
+    String[] names = new String[header.size()];
+    String[] types = new String[header.size()];
+    for (int i = first; i < header.size(); i++) {
+      String col = header.get(i);
+      int colon = col.lastIndexOf(':');
+      if (colon > 0) {
+        names[i] = col.substring(0, colon);
+        types[i] = col.substring(colon + 1);
+      } else {
+        names[i] = col;
+        types[i] = "string";
+      }
+    }
+
+    List<String> record;
+    while ((record = reader.next()) != null) {
+      if (record.size() == 1 && record.get(0).length() == 0) {
+        continue;
+      }
+      if (record.size() < first) {
+        throw new IOException("Record " + reader.getRecordNumber() + " has only " + record.size() + " fields");
+      }
+      Map<String, Object> props = new HashMap<String, Object>();
+      int n = Math.min(record.size(), names.length);
+      for (int i = first; i < n; i++) {
+        String value = record.get(i);
+        if (value.length() > 0) {
+          try {
+            props.put(names[i], cast(types[i], value));
+          } catch (NumberFormatException e) {
+            throw new IOException("Invalid value for '" + header.get(i) + "' in record " + reader.getRecordNumber() + ": " + value);
+          }
+        }
+      }
+      boolean go = edges
+          ? handler.edge(null, record.get(0), record.get(1), record.get(2), props)
+          : handler.vertex(record.get(0), props);
+      if (!go) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static Object cast(String type, String value) {
+    if ("int".equals(type)) {
+      return Integer.valueOf(value.trim());
+    }
+    if ("long".equals(type)) {
+      return Long.valueOf(value.trim());
+    }
+    if ("float".equals(type)) {
+      return Float.valueOf(value.trim());
+    }
+    if ("double".equals(type)) {
+      return Double.valueOf(value.trim());
+    }
+    if ("boolean".equals(type)) {
+      return Boolean.valueOf(value.trim());
+    }
+    return value;
+  }
+}
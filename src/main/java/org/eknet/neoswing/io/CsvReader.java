@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads records of comma separated values.
+ * <p/>
+ * Fields may be quoted with double quotes, a quote inside a quoted field is
+ * written twice. Quoted fields may contain line breaks. The reader works on
+ * a char buffer and reuses the list of fields, so the list returned by
+ * {@link #next()} is only valid until the next call.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:30
+ */
+public class CsvReader {
+
+  private final Reader reader;
+  private final char[] buffer = new char[64 * 1024];
+  private int pos;
+  private int limit;
+
+  private final List<String> fields = new ArrayList<String>();
+  private final StringBuilder field = new StringBuilder();
+  private long line = 0;
+
+  public CsvReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return the fields of the record or {@code null} at the end of input
+   * @throws IOException
+   */
+  public List<String> next() throws IOException {
+    fields.clear();
+    field.setLength(0);
+    int c = read();
+    if (c < 0) {
+      return null;
+    }
+    line++;
+    boolean quoted = false;
+    boolean wasQuoted = false;
+    while (true) {
+      if (quoted) {
+        if (c < 0) {
+          throw new IOException("Unterminated quoted field in record " + line);
+        }
+        if (c == '"') {
+          int n = read();
+          if (n == '"') {
+            field.append('"');
+          } else {
+            quoted = false;
+            c = n;
+            continue;
+          }
+        } else {
+          field.append((char) c);
+        }
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+        wasQuoted = false;
+      } else if (c == '\n' || c == '\r' || c < 0) {
+        if (c == '\r') {
+          int n = read();
+          if (n != '\n' && n >= 0) {
+            pos--;
+          }
+        }
+        fields.add(field.toString());
+        return fields;
+      } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+        quoted = true;
+        wasQuoted = true;
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+  }
+
+  /**
+   * The number of the last record read, starting at 1.
+   *
+   * @return
+   */
+  public long getRecordNumber() {
+    return line;
+  }
+
+  private int read() throws IOException {
+    if (pos == limit) {
+      limit = reader.read(buffer, 0, buffer.length);
+      pos = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[pos++];
+  }
+}
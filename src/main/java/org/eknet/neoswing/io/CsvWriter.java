@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records of comma separated values that can be read by
+ * {@link CsvReader}. Fields are only quoted if necessary.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:50
+ */
+public class CsvWriter {
+
+  private final Writer writer;
+  private boolean first = true;
+
+  public CsvWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  public CsvWriter field(String value) throws IOException {
+    if (!first) {
+      writer.write(',');
+    }
+    first = false;
+    if (value == null || value.length() == 0) {
+      return this;
+    }
+    if (needsQuotes(value)) {
+      writer.write('"');
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c == '"') {
+          writer.write('"');
+        }
+        writer.write(c);
+      }
+      writer.write('"');
+    } else {
+      writer.write(value);
+    }
+    return this;
+  }
+
+  public void endRecord() throws IOException {
+    writer.write('\n');
+    first = true;
+  }
+
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  private static boolean needsQuotes(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
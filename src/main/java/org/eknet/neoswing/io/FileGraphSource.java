@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads files one after the other with the same parser. The files are
+ * opened via {@link GraphFiles}, so they may be compressed or split.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:25
+ */
+public class FileGraphSource implements GraphSource {
+
+  private final GraphParser parser;
+  private final List<File> files;
+
+  private volatile long done;
+  private volatile CountingInputStream current;
+
+  public FileGraphSource(GraphParser parser, File... files) {
+    this.parser = parser;
+    this.files = new ArrayList<File>(Arrays.asList(files));
+  }
+
+  public List<File> getFiles() {
+    return files;
+  }
+
+  @Override
+  public boolean read(GraphHandler handler) throws IOException {
+    done = 0;
+    for (File file : files) {
+      CountingInputStream counter = new CountingInputStream(GraphFiles.openRaw(file));
+      current = counter;
+      InputStream in = GraphFiles.decode(counter);
+      try {
+        if (!parser.parse(in, handler)) {
+          return false;
+        }
+      } finally {
+        in.close();
+        current = null;
+        done += counter.getCount();
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public long getLength() {
+    long len = 0;
+    for (File file : files) {
+      len += GraphFiles.length(file);
+    }
+    return len;
+  }
+
+  @Override
+  public long getPosition() {
+    CountingInputStream c = current;
+    return done + (c == null ? 0 : c.getCount());
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens the files of imports and exports.
+ * <p/>
+ * Exports can be gzip compressed and split into parts (see
+ * {@link ChunkedFileOutputStream}). The compression is applied to the whole
+ * stream before it is split. When reading, the parts are joined and gzip is
+ * detected from the content, so either the file or any of its parts can be
+ * given.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 19:45
+ */
+public final class GraphFiles {
+
+  public static final int BUFFER_SIZE = 1024 * 1024;
+
+  private static final Pattern partPattern = Pattern.compile("(.*)\\.part(\\d{4})$");
+
+  private GraphFiles() {
+  }
+
+  /**
+   * Opens a buffered stream to the given file. An existing file and all
+   * its parts are deleted first, so that no stale parts are read back
+   * together with the new ones.
+   *
+   * @param file
+   * @param gzip whether to compress the output
+   * @param chunkSize the maximum size of a file in bytes or 0 to write one file
+   * @return
+   * @throws IOException
+   */
+  public static OutputStream openOutput(File file, boolean gzip, long chunkSize) throws IOException {
+    if (!delete(file)) {
+      throw new IOException("Unable to delete the existing file '" + file + "' or its parts");
+    }
+    OutputStream out = chunkSize > 0
+        ? new ChunkedFileOutputStream(file, chunkSize)
+        : new FileOutputStream(file);
+    out = new BufferedOutputStream(out, BUFFER_SIZE);
+    if (gzip) {
+      out = new GZIPOutputStream(out, 64 * 1024);
+    }
+    return out;
+  }
+
+  /**
+   * Opens the raw content of the given file, joining all parts if it has
+   * been split. The stream is not buffered.
+   *
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  public static InputStream openRaw(File file) throws IOException {
+    final List<File> parts = getParts(file);
+    if (parts.size() == 1) {
+      return new FileInputStream(parts.get(0));
+    }
+    final Iterator<File> iter = parts.iterator();
+    return new SequenceInputStream(new Enumeration<InputStream>() {
+      @Override
+      public boolean hasMoreElements() {
+        return iter.hasNext();
+      }
+
+      @Override
+      public InputStream nextElement() {
+        File part = iter.next();
+        try {
+          return new FileInputStream(part);
+        } catch (FileNotFoundException e) {
+          throw new IllegalStateException("Part file vanished: " + part, e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Buffers the given raw stream and decompresses it, if it is gzip
+   * compressed.
+   *
+   * @param raw
+   * @return
+   * @throws IOException
+   */
+  public static InputStream decode(InputStream raw) throws IOException {
+    BufferedInputStream in = new BufferedInputStream(raw, BUFFER_SIZE);
+    in.mark(2);
+    int b1 = in.read();
+    int b2 = in.read();
+    in.reset();
+    if (b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+      return new BufferedInputStream(new GZIPInputStream(in, 64 * 1024), 64 * 1024);
+    }
+    return in;
+  }
+
+  /**
+   * Returns the size of the file on disk, that is the sum of all parts.
+   *
+   * @param file
+   * @return
+   */
+  public static long length(File file) {
+    long len = 0;
+    for (File part : getParts(file)) {
+      len += part.length();
+    }
+    return len;
+  }
+
+  static File partFile(File file, int part) {
+    return new File(file.getParentFile(), String.format("%s.part%04d", file.getName(), part));
+  }
+
+  /**
+   * Returns whether the file or its first part exists.
+   *
+   * @param file
+   * @return
+   */
+  public static boolean exists(File file) {
+    return file.isFile() || partFile(file, 0).isFile();
+  }
+
+  /**
+   * Returns the name of the file without the suffix of a part.
+   *
+   * @param file
+   * @return
+   */
+  public static String baseName(File file) {
+    Matcher m = partPattern.matcher(file.getName());
+    return m.matches() ? m.group(1) : file.getName();
+  }
+
+  /**
+   * Deletes the file and all its parts.
+   *
+   * @param file
+   * @return {@code true} if all files have been deleted
+   */
+  public static boolean delete(File file) {
+    Matcher m = partPattern.matcher(file.getName());
+    File base = m.matches() ? new File(file.getParentFile(), m.group(1)) : file;
+    boolean deleted = !base.exists() || base.delete();
+    for (int i = 0; i < 10000; i++) {
+      File part = partFile(base, i);
+      if (!part.exists()) {
+        break;
+      }
+      deleted &= part.delete();
+    }
+    return deleted;
+  }
+
+  private static List<File> getParts(File file) {
+    File base = file;
+    Matcher m = partPattern.matcher(file.getName());
+    if (m.matches()) {
+      base = new File(file.getParentFile(), m.group(1));
+    } else if (file.isFile()) {
+      return Collections.singletonList(file);
+    }
+    List<File> parts = new ArrayList<File>();
+    for (int i = 0; i < 10000; i++) {
+      File part = partFile(base, i);
+      if (!part.isFile()) {
+        break;
+      }
+      parts.add(part);
+    }
+    if (parts.isEmpty()) {
+      return Collections.singletonList(file);
+    }
+    return parts;
+  }
+}
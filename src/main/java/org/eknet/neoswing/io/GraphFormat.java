@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The file formats for imports and exports. The format is chosen by the
+ * file name, see {@link #forFile(File)}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 22:05
+ */
+public enum GraphFormat {
+
+  /**
+   * One GraphML file.
+   */
+  GraphML {
+    @Override
+    public GraphSource openSource(File file) {
+      return new FileGraphSource(new GraphMLParser(), file);
+    }
+
+    @Override
+    public boolean write(File file, boolean gzip, long chunkSize, Iterable<? extends Vertex> vertices,
+                         Iterable<? extends Edge> edges, Progress progress) throws IOException {
+      OutputStream out = GraphFiles.openOutput(file, gzip, chunkSize);
+      try {
+        return new GraphMLExporter().write(out, vertices, edges, progress);
+      } finally {
+        out.close();
+      }
+    }
+
+    @Override
+    public boolean delete(File file) {
+      return GraphFiles.delete(file);
+    }
+  },
+
+  /**
+   * A vertex file {@code <name>.vertices.csv} and an edge file
+   * {@code <name>.edges.csv}, see {@link CsvParser}. Any of the two or
+   * {@code <name>.csv} may be chosen. If only an edge file exists, it is
+   * read as edge list.
+   */
+  CSV {
+    @Override
+    public GraphSource openSource(File file) {
+      List<File> files = new ArrayList<File>();
+      File vertexFile = vertexFile(file);
+      File edgeFile = edgeFile(file);
+      if (GraphFiles.exists(vertexFile)) {
+        files.add(vertexFile);
+      }
+      if (GraphFiles.exists(edgeFile)) {
+        files.add(edgeFile);
+      }
+      if (files.isEmpty()) {
+        files.add(file);
+      }
+      return new FileGraphSource(new CsvParser(), files.toArray(new File[files.size()]));
+    }
+
+    @Override
+    public boolean write(File file, boolean gzip, long chunkSize, Iterable<? extends Vertex> vertices,
+                         Iterable<? extends Edge> edges, Progress progress) throws IOException {
+      CsvExporter exporter = new CsvExporter();
+      OutputStream out = GraphFiles.openOutput(vertexFile(file), gzip, chunkSize);
+      try {
+        if (!exporter.writeVertices(out, vertices, progress)) {
+          return false;
+        }
+      } finally {
+        out.close();
+      }
+      out = GraphFiles.openOutput(edgeFile(file), gzip, chunkSize);
+      try {
+        return exporter.writeEdges(out, edges, progress);
+      } finally {
+        out.close();
+      }
+    }
+
+    @Override
+    public boolean delete(File file) {
+      boolean v = GraphFiles.delete(vertexFile(file));
+      return GraphFiles.delete(edgeFile(file)) && v;
+    }
+
+    private File vertexFile(File file) {
+      return new File(file.getParentFile(), csvBaseName(file) + ".vertices.csv");
+    }
+
+    private File edgeFile(File file) {
+      return new File(file.getParentFile(), csvBaseName(file) + ".edges.csv");
+    }
+
+    private String csvBaseName(File file) {
+      String name = stripSuffix(GraphFiles.baseName(file), ".gz");
+      for (String suffix : new String[] { ".vertices.csv", ".edges.csv", ".csv" }) {
+        if (name.toLowerCase().endsWith(suffix)) {
+          return name.substring(0, name.length() - suffix.length());
+        }
+      }
+      return name;
+    }
+  };
+
+  /**
+   * Opens the graph in the given file for reading.
+   *
+   * @param file
+   * @return
+   */
+  public abstract GraphSource openSource(File file);
+
+  /**
+   * Writes the given elements into the given file.
+   *
+   * @param file
+   * @param gzip whether to compress the output
+   * @param chunkSize the maximum size of a file or 0
+   * @param vertices
+   * @param edges
+   * @param progress
+   * @return {@code false} if cancelled
+   * @throws IOException
+   */
+  public abstract boolean write(File file, boolean gzip, long chunkSize, Iterable<? extends Vertex> vertices,
+                                Iterable<? extends Edge> edges, Progress progress) throws IOException;
+
+  /**
+   * Deletes all files written by {@link #write(File, boolean, long, Iterable, Iterable, Progress)}.
+   *
+   * @param file
+   * @return
+   */
+  public abstract boolean delete(File file);
+
+  /**
+   * Returns {@link #CSV} for files ending in {@code .csv}, ignoring the
+   * suffixes of compressed and split files, and {@link #GraphML} otherwise.
+   *
+   * @param file
+   * @return
+   */
+  public static GraphFormat forFile(File file) {
+    String name = stripSuffix(GraphFiles.baseName(file), ".gz").toLowerCase();
+    if (name.endsWith(".csv")) {
+      return CSV;
+    }
+    return GraphML;
+  }
+
+  private static String stripSuffix(String name, String suffix) {
+    if (name.toLowerCase().endsWith(suffix)) {
+      return name.substring(0, name.length() - suffix.length());
+    }
+    return name;
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.util.Map;
+
+/**
+ * Receives the elements read by a {@link GraphParser}.
+ * <p/>
+ * Ids are the ids used in the file. An edge may refer to vertices that
+ * appear later in the file. The property maps are not reused by the parser.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:30
+ */
+public interface GraphHandler {
+
+  /**
+   * @return {@code false} to stop parsing
+   */
+  boolean vertex(String id, Map<String, Object> properties);
+
+  /**
+   * @return {@code false} to stop parsing
+   */
+  boolean edge(String id, String source, String target, String label, Map<String, Object> properties);
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.GraphDb;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads a graph into the database without keeping the file or the
+ * transaction in memory.
+ * <p/>
+ * Each element is added as soon as it has been read from the
+ * {@link GraphSource}. Every
+ * {@link #getCommitInterval()} elements the transaction is committed via
+ * {@link GraphDb#checkpoint()}, so this must be called inside a transaction.
+ * The file ids of vertices are mapped to the database ids in a compact
+ * {@link VertexIdMap}; edges look up their end points by id.
+ * <p/>
+ * Like Blueprints' {@code GraphMLReader}, the property "id" is used as id
+ * hint for new elements.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:20
+ */
+public class GraphImporter {
+
+  public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+
+  private static final int progressInterval = 1000;
+
+  private final GraphDb db;
+  private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+  private String idKey = "id";
+
+  public GraphImporter(GraphDb db) {
+    this.db = db;
+  }
+
+  public int getCommitInterval() {
+    return commitInterval;
+  }
+
+  public void setCommitInterval(int commitInterval) {
+    if (commitInterval <= 0) {
+      throw new IllegalArgumentException("Commit interval must be positive: " + commitInterval);
+    }
+    this.commitInterval = commitInterval;
+  }
+
+  public String getIdKey() {
+    return idKey;
+  }
+
+  public void setIdKey(String idKey) {
+    this.idKey = idKey;
+  }
+
+  /**
+   * Reads the given source and adds all vertices and edges to the database.
+   * If the import is cancelled, the elements read so far stay in the database.
+   *
+   * @param source
+   * @param progress
+   * @return the number of elements read
+   * @throws IOException
+   */
+  public long read(GraphSource source, final Progress progress) throws IOException {
+    final VertexIdMap vertexIds = new VertexIdMap();
+    final long[] count = new long[1];
+    source.read(new GraphHandler() {
+      @Override
+      public boolean vertex(String id, Map<String, Object> properties) {
+        Object idHint = properties.remove(idKey);
+        Vertex v = getOrCreateVertex(vertexIds, id, idHint);
+        setProperties(v, properties);
+        return added(++count[0], progress);
+      }
+
+      @Override
+      public boolean edge(String id, String source, String target, String label, Map<String, Object> properties) {
+        Object idHint = properties.remove(idKey);
+        Vertex out = getOrCreateVertex(vertexIds, source, null);
+        Vertex in = getOrCreateVertex(vertexIds, target, null);
+        Edge edge = db.createEdge(idHint, out, in, label);
+        setProperties(edge, properties);
+        return added(++count[0], progress);
+      }
+    });
+    progress.update(count[0]);
+    return count[0];
+  }
+
+  private boolean added(long count, Progress progress) {
+    if (count % commitInterval == 0) {
+      db.checkpoint();
+    }
+    return count % progressInterval != 0 || progress.update(count);
+  }
+
+  /**
+   * Returns the vertex with the given file id. Edges may refer to vertices
+   * that come later in the file, so a vertex is created when it is referenced
+   * first.
+   */
+  private Vertex getOrCreateVertex(VertexIdMap ids, String fileId, Object idHint) {
+    Object dbId = ids.get(fileId);
+    if (dbId != null) {
+      return db.lookupVertex(dbId);
+    }
+    Vertex v = db.createNode(idHint);
+    ids.put(fileId, v.getId());
+    return v;
+  }
+
+  static void setProperties(Element element, Map<String, Object> data) {
+    for (Map.Entry<String, Object> entry : data.entrySet()) {
+      element.setProperty(entry.getKey(), entry.getValue());
+    }
+  }
+}
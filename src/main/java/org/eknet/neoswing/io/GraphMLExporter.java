@@ -0,0 +1,198 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes vertices and edges to a GraphML file while reading them.
+ * <p/>
+ * GraphML needs all property keys declared before the graph, so the
+ * elements are read twice: first to collect the keys and their types and
+ * then to write them. Nothing else is kept in memory. The output can be
+ * read by Blueprints' {@code GraphMLReader} and by {@link GraphImporter}.
+ * <p/>
+ * This should be called inside a transaction.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 19:05
+ */
+public class GraphMLExporter {
+
+  private static final String graphmlNs = "http://graphml.graphdrawing.org/xmlns";
+  private static final int progressInterval = 1000;
+
+  private long count;
+  private Progress progress;
+
+  /**
+   * Writes the given elements. Both iterables are iterated twice. Edges
+   * should only connect the given vertices.
+   *
+   * @param out
+   * @param vertices
+   * @param edges
+   * @param progress is told the number of elements processed in both passes
+   * @return {@code false} if cancelled, then the output is incomplete
+   * @throws IOException
+   */
+  public boolean write(OutputStream out, Iterable<? extends Vertex> vertices, Iterable<? extends Edge> edges, Progress progress) throws IOException {
+    this.count = 0;
+    this.progress = progress;
+    try {
+      Map<String, String> nodeKeys = new TreeMap<String, String>();
+      Map<String, String> edgeKeys = new TreeMap<String, String>();
+      for (Vertex v : vertices) {
+        collectKeys(v, nodeKeys);
+        if (!step()) {
+          return false;
+        }
+      }
+      for (Edge e : edges) {
+        collectKeys(e, edgeKeys);
+        if (!step()) {
+          return false;
+        }
+      }
+
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeCharacters("\n");
+      writer.writeStartElement("graphml");
+      writer.writeDefaultNamespace(graphmlNs);
+      writer.writeCharacters("\n");
+      writeKeys(writer, "node", nodeKeys);
+      writeKeys(writer, "edge", edgeKeys);
+      writer.writeStartElement("graph");
+      writer.writeAttribute("id", "G");
+      writer.writeAttribute("edgedefault", "directed");
+      writer.writeCharacters("\n");
+      for (Vertex v : vertices) {
+        writer.writeStartElement("node");
+        writer.writeAttribute("id", v.getId().toString());
+        writeData(writer, v, "node");
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+        if (!step()) {
+          return false;
+        }
+      }
+      for (Edge e : edges) {
+        writer.writeStartElement("edge");
+        writer.writeAttribute("id", e.getId().toString());
+        writer.writeAttribute("source", e.getVertex(Direction.OUT).getId().toString());
+        writer.writeAttribute("target", e.getVertex(Direction.IN).getId().toString());
+        writer.writeAttribute("label", e.getLabel());
+        writeData(writer, e, "edge");
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+        if (!step()) {
+          return false;
+        }
+      }
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+      progress.update(count);
+      return true;
+    } catch (XMLStreamException e) {
+      throw new IOException("Error writing GraphML: " + e.getMessage(), e);
+    } finally {
+      this.progress = null;
+    }
+  }
+
+  private boolean step() {
+    count++;
+    return count % progressInterval != 0 || progress.update(count);
+  }
+
+  static void collectKeys(Element element, Map<String, String> keys) {
+    for (String key : element.getPropertyKeys()) {
+      String type = typeOf(element.getProperty(key));
+      String known = keys.get(key);
+      if (known == null) {
+        keys.put(key, type);
+      } else if (!known.equals(type)) {
+        keys.put(key, "string");
+      }
+    }
+  }
+
+  private void writeKeys(XMLStreamWriter writer, String kind, Map<String, String> keys) throws XMLStreamException {
+    for (Map.Entry<String, String> entry : keys.entrySet()) {
+      writer.writeStartElement("key");
+      writer.writeAttribute("id", keyId(kind, entry.getKey()));
+      writer.writeAttribute("for", kind);
+      writer.writeAttribute("attr.name", entry.getKey());
+      writer.writeAttribute("attr.type", entry.getValue());
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+    }
+  }
+
+  private void writeData(XMLStreamWriter writer, Element element, String kind) throws XMLStreamException {
+    for (String key : element.getPropertyKeys()) {
+      Object value = element.getProperty(key);
+      if (value == null) {
+        continue;
+      }
+      writer.writeStartElement("data");
+      writer.writeAttribute("key", keyId(kind, key));
+      writer.writeCharacters(value.toString());
+      writer.writeEndElement();
+    }
+  }
+
+  private static String keyId(String kind, String key) {
+    // node and edge keys with the same name need different ids
+    return kind.equals("node") ? key : "e." + key;
+  }
+
+  static String typeOf(Object value) {
+    if (value instanceof Integer) {
+      return "int";
+    }
+    if (value instanceof Long) {
+      return "long";
+    }
+    if (value instanceof Float) {
+      return "float";
+    }
+    if (value instanceof Double) {
+      return "double";
+    }
+    if (value instanceof Boolean) {
+      return "boolean";
+    }
+    return "string";
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A streaming GraphML parser based on StAX. Each node and edge is passed
+ * to the handler when its element is closed.
+ * <p/>
+ * Like Blueprints' {@code GraphMLReader}, the data key "label" is used as
+ * label of edges, if present.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:35
+ */
+public class GraphMLParser implements GraphParser {
+
+  private String edgeLabelKey = "label";
+
+  public String getEdgeLabelKey() {
+    return edgeLabelKey;
+  }
+
+  public void setEdgeLabelKey(String edgeLabelKey) {
+    this.edgeLabelKey = edgeLabelKey;
+  }
+
+  @Override
+  public boolean parse(InputStream in, GraphHandler handler) throws IOException {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    try {
+      XMLStreamReader reader = factory.createXMLStreamReader(in, "UTF-8");
+      try {
+        return parse(reader, handler);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Error reading GraphML: " + e.getMessage(), e);
+    }
+  }
+
+  private boolean parse(XMLStreamReader reader, GraphHandler handler) throws XMLStreamException {
+    Map<String, Key> keys = new HashMap<String, Key>();
+
+    String elementId = null;
+    String source = null;
+    String target = null;
+    String label = null;
+    Map<String, Object> data = null;
+    Key dataKey = null;
+    StringBuilder text = new StringBuilder();
+
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        String name = reader.getLocalName();
+        if ("key".equals(name)) {
+          String id = reader.getAttributeValue(null, "id");
+          keys.put(id, new Key(reader.getAttributeValue(null, "attr.name"), reader.getAttributeValue(null, "attr.type")));
+        } else if ("node".equals(name) || "edge".equals(name)) {
+          elementId = reader.getAttributeValue(null, "id");
+          source = reader.getAttributeValue(null, "source");
+          target = reader.getAttributeValue(null, "target");
+          label = reader.getAttributeValue(null, "label");
+          data = new LinkedHashMap<String, Object>();
+        } else if ("data".equals(name) && data != null) {
+          String keyId = reader.getAttributeValue(null, "key");
+          dataKey = keys.get(keyId);
+          if (dataKey == null) {
+            dataKey = new Key(keyId, "string");
+          }
+          text.setLength(0);
+        }
+      } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+        if (dataKey != null) {
+          text.append(reader.getText());
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        String name = reader.getLocalName();
+        if ("data".equals(name) && dataKey != null) {
+          data.put(dataKey.name, dataKey.cast(text.toString()));
+          dataKey = null;
+        } else if ("node".equals(name)) {
+          Map<String, Object> props = data;
+          data = null;
+          if (!handler.vertex(elementId, props)) {
+            return false;
+          }
+        } else if ("edge".equals(name)) {
+          Map<String, Object> props = data;
+          data = null;
+          Object labelValue = props.remove(edgeLabelKey);
+          if (labelValue != null) {
+            label = labelValue.toString();
+          }
+          if (!handler.edge(elementId, source, target, label == null ? "" : label, props)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private static final class Key {
+    private final String name;
+    private final String type;
+
+    private Key(String name, String type) {
+      this.name = name;
+      this.type = type == null ? "string" : type;
+    }
+
+    private Object cast(String value) {
+      if ("int".equals(type)) {
+        return Integer.valueOf(value.trim());
+      }
+      if ("long".equals(type)) {
+        return Long.valueOf(value.trim());
+      }
+      if ("float".equals(type)) {
+        return Float.valueOf(value.trim());
+      }
+      if ("double".equals(type)) {
+        return Double.valueOf(value.trim());
+      }
+      if ("boolean".equals(type)) {
+        return Boolean.valueOf(value.trim());
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a graph file and passes its elements to a {@link GraphHandler}.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:31
+ */
+public interface GraphParser {
+
+  /**
+   * Reads the given stream until its end or until the handler stops.
+   *
+   * @param in
+   * @param handler
+   * @return {@code false} if the handler stopped
+   * @throws IOException
+   */
+  boolean parse(InputStream in, GraphHandler handler) throws IOException;
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.io.IOException;
+
+/**
+ * A graph stored in one or more files that can be read repeatedly.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 21:20
+ */
+public interface GraphSource {
+
+  /**
+   * Reads all elements and passes them to the handler. Each call starts
+   * from the beginning.
+   *
+   * @param handler
+   * @return {@code false} if the handler stopped
+   * @throws IOException
+   */
+  boolean read(GraphHandler handler) throws IOException;
+
+  /**
+   * The size of all files in bytes.
+   *
+   * @return
+   */
+  long getLength();
+
+  /**
+   * The number of bytes read by the current or last call to {@link #read(GraphHandler)}.
+   *
+   * @return
+   */
+  long getPosition();
+
+}
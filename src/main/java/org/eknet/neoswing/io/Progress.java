@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+/**
+ * Receives progress notifications of long running imports and exports.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:10
+ */
+public interface Progress {
+
+  /**
+   * Called every now and then with the number of elements processed.
+   *
+   * @param elements
+   * @return {@code false} to cancel
+   */
+  boolean update(long elements);
+
+  Progress NONE = new Progress() {
+    @Override
+    public boolean update(long elements) {
+      return true;
+    }
+  };
+}
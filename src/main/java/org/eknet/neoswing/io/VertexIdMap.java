@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps the vertex ids of an imported file to the ids the database has
+ * assigned.
+ * <p/>
+ * If both ids are numbers, as with Neo4j and files written by it, the pair
+ * is kept in an open addressing table of primitive longs, which needs about
+ * 32 bytes per vertex. All other pairs go into a normal hash map.
+ * <p/>
+ * The table holds either {@link Long} or {@link Integer} database ids,
+ * depending on the first one that is added, and {@link #get(String)}
+ * returns them as that type again, so they can be passed to
+ * {@code getVertex()} unchanged. Ids of the other type go into the hash map.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 18:05
+ */
+final class VertexIdMap {
+
+  private static final long FREE = Long.MIN_VALUE;
+
+  private long[] keys;
+  private long[] values;
+  private int size;
+  private int mask;
+  private Class<?> valueType;
+
+  private final Map<String, Object> others = new HashMap<String, Object>();
+
+  VertexIdMap() {
+    this(1024);
+  }
+
+  VertexIdMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+    allocate(capacity);
+  }
+
+  public void put(String fileId, Object dbId) {
+    long key = parse(fileId);
+    if (key != FREE && isTableValue(dbId)) {
+      others.remove(fileId);
+      putLong(key, ((Number) dbId).longValue());
+    } else {
+      if (key != FREE) {
+        removeLong(key);
+      }
+      others.put(fileId, dbId);
+    }
+  }
+
+  /**
+   * Returns the database id for the given file id or {@code null}.
+   *
+   * @param fileId
+   * @return
+   */
+  public Object get(String fileId) {
+    long key = parse(fileId);
+    if (key != FREE) {
+      int i = index(key);
+      while (keys[i] != FREE) {
+        if (keys[i] == key) {
+          // no conditional expression here, it would unbox both to long
+          if (valueType == Integer.class) {
+            return Integer.valueOf((int) values[i]);
+          }
+          return Long.valueOf(values[i]);
+        }
+        i = (i + 1) & mask;
+      }
+    }
+    return others.get(fileId);
+  }
+
+  public int size() {
+    return size + others.size();
+  }
+
+  private boolean isTableValue(Object dbId) {
+    if (valueType == null && (dbId instanceof Long || dbId instanceof Integer)) {
+      valueType = dbId.getClass();
+    }
+    return dbId != null && dbId.getClass() == valueType;
+  }
+
+  private void putLong(long key, long value) {
+    if ((size + 1) * 2 > keys.length) {
+      long[] oldKeys = keys;
+      long[] oldValues = values;
+      allocate(keys.length * 2);
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] != FREE) {
+          insert(oldKeys[j], oldValues[j]);
+        }
+      }
+    }
+    insert(key, value);
+  }
+
+  private void insert(long key, long value) {
+    int i = index(key);
+    while (keys[i] != FREE) {
+      if (keys[i] == key) {
+        values[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    size++;
+  }
+
+  /**
+   * Removes the key by re-inserting the entries that follow it in its run,
+   * so that lookups do not stop early at the freed slot.
+   */
+  private void removeLong(long key) {
+    int i = index(key);
+    while (keys[i] != key) {
+      if (keys[i] == FREE) {
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = FREE;
+    size--;
+    for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+      long k = keys[j];
+      keys[j] = FREE;
+      size--;
+      insert(k, values[j]);
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    Arrays.fill(keys, FREE);
+    mask = capacity - 1;
+    size = 0;
+  }
+
+  private int index(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  /**
+   * Parses the id as long or returns {@link #FREE} if it is not a number.
+   */
+  private static long parse(String id) {
+    int len = id.length();
+    if (len == 0 || len > 18) {
+      return FREE;
+    }
+    int start = id.charAt(0) == '-' ? 1 : 0;
+    if (start == len || (len - start > 1 && id.charAt(start) == '0')) {
+      // leading zeros would map different ids to the same number
+      return FREE;
+    }
+    long n = 0;
+    for (int i = start; i < len; i++) {
+      char c = id.charAt(i);
+      if (c < '0' || c > '9') {
+        return FREE;
+      }
+      n = n * 10 + (c - '0');
+    }
+    if (start == 1) {
+      return n == 0 ? FREE : -n;
+    }
+    return n;
+  }
+}
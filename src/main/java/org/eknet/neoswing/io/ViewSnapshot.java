@@ -0,0 +1,320 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.algorithms.layout.StaticLayout;
+import edu.uci.ics.jung.algorithms.layout.util.Relaxer;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.EdgeType;
+import edu.uci.ics.jung.visualization.VisualizationModel;
+import org.apache.commons.collections15.Transformer;
+import org.eknet.neoswing.DetachedElement;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphDb;
+import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.LabelCache;
+import org.eknet.neoswing.layout.IncrementalLayout;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A saved graph view: the ids of its vertices and edges, their cached
+ * labels and the vertex positions.
+ * <p/>
+ * The snapshot is written in a compact binary format using a file channel
+ * and read from a memory mapped file. The elements of a loaded snapshot
+ * are {@link DetachedElement}s, so a view can be restored without reading
+ * anything from the database; the properties are looked up not until they
+ * are needed. The labels are put into the {@link LabelCache}, so they are
+ * not computed again either.
+ * <p/>
+ * The file starts with a magic number and a version, followed by the
+ * number of vertices and edges. Each vertex is stored as id, position and
+ * label, each edge as id, index of its out and in vertex and label. The
+ * label of an edge is its edge label, so it is restored as such.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 22:55
+ */
+public final class ViewSnapshot {
+
+  private static final int MAGIC = 0x4e535653;
+  private static final int VERSION = 1;
+
+  private static final byte ID_LONG = 0;
+  private static final byte ID_STRING = 1;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final List<Vertex> vertices;
+  private final List<Edge> edges;
+  private final Map<Vertex, Point2D> locations;
+  private final Map<ElementId<?>, String> labels;
+
+  private ViewSnapshot(int vertexCount, int edgeCount) {
+    this.vertices = new ArrayList<Vertex>(vertexCount);
+    this.edges = new ArrayList<Edge>(edgeCount);
+    this.locations = new HashMap<Vertex, Point2D>(vertexCount * 4 / 3 + 1);
+    this.labels = new HashMap<ElementId<?>, String>((vertexCount + edgeCount) * 4 / 3 + 1);
+  }
+
+  public int getVertexCount() {
+    return vertices.size();
+  }
+
+  public int getEdgeCount() {
+    return edges.size();
+  }
+
+  /**
+   * Writes the current view to the given file. This must be called on the
+   * EDT; it does not access the database.
+   *
+   * @param file
+   * @param graph
+   * @param layout
+   * @param cache
+   * @throws IOException
+   */
+  public static void write(File file, Graph<Vertex, Edge> graph, Layout<Vertex, Edge> layout, LabelCache cache) throws IOException {
+    List<Vertex> vertices = new ArrayList<Vertex>(graph.getVertices());
+    List<Edge> edges = new ArrayList<Edge>(graph.getEdges());
+    Map<Vertex, Integer> index = new HashMap<Vertex, Integer>(vertices.size() * 4 / 3 + 1);
+
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      Writer writer = new Writer(out.getChannel());
+      writer.ensure(16);
+      writer.buffer.putInt(MAGIC).putInt(VERSION).putInt(vertices.size()).putInt(edges.size());
+      for (Vertex v : vertices) {
+        index.put(v, index.size());
+        writer.writeId(v.getId());
+        Point2D p = layout.transform(v);
+        writer.ensure(16);
+        writer.buffer.putDouble(p != null ? p.getX() : 0).putDouble(p != null ? p.getY() : 0);
+        writer.writeString(cache.get(ElementId.vertexId(v)));
+      }
+      for (Edge e : edges) {
+        writer.writeId(e.getId());
+        writer.ensure(8);
+        writer.buffer.putInt(index.get(graph.getSource(e))).putInt(index.get(graph.getDest(e)));
+        writer.writeString(cache.get(ElementId.edgeId(e)));
+      }
+      writer.flush();
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads a snapshot from the given file. The database is only used to
+   * create the detached elements, it is not accessed.
+   *
+   * @param file
+   * @param db
+   * @return
+   * @throws IOException
+   */
+  public static ViewSnapshot read(File file, GraphDb db) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+        throw new IOException("The file '" + file + "' is not a view snapshot");
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported snapshot version: " + version);
+      }
+      int vertexCount = buffer.getInt();
+      int edgeCount = buffer.getInt();
+      ViewSnapshot snapshot = new ViewSnapshot(vertexCount, edgeCount);
+      for (int i = 0; i < vertexCount; i++) {
+        Vertex v = DetachedElement.vertex(db, readId(buffer));
+        snapshot.vertices.add(v);
+        snapshot.locations.put(v, new Point2D.Double(buffer.getDouble(), buffer.getDouble()));
+        String label = readString(buffer);
+        if (label != null) {
+          snapshot.labels.put(ElementId.vertexId(v), label);
+        }
+      }
+      for (int i = 0; i < edgeCount; i++) {
+        Object id = readId(buffer);
+        Vertex out = snapshot.vertices.get(buffer.getInt());
+        Vertex in = snapshot.vertices.get(buffer.getInt());
+        String label = readString(buffer);
+        Edge e = DetachedElement.edge(db, id, label, out, in);
+        snapshot.edges.add(e);
+        if (label != null) {
+          snapshot.labels.put(ElementId.edgeId(e), label);
+        }
+      }
+      return snapshot;
+    } catch (RuntimeException e) {
+      throw new IOException("The view snapshot '" + file + "' is corrupt", e);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Replaces the view of the given model with this snapshot. This must be
+   * called on the EDT.
+   * <p/>
+   * If the view uses an {@link IncrementalLayout}, the positions are used
+   * to seed it. Otherwise they are set on the current layout and the
+   * vertices are locked, so that they keep their position until another
+   * layout is chosen.
+   *
+   * @param model
+   */
+  public void applyTo(GraphModel model) {
+    Graph<Vertex, Edge> graph = model.getGraph();
+    model.setContainsDetached();
+    VisualizationModel<Vertex, Edge> visualizationModel = model.getViewer().getModel();
+    Relaxer relaxer = visualizationModel.getRelaxer();
+    if (relaxer != null) {
+      relaxer.pause();
+    }
+    try {
+      for (Edge e : new ArrayList<Edge>(graph.getEdges())) {
+        graph.removeEdge(e);
+      }
+      for (Vertex v : new ArrayList<Vertex>(graph.getVertices())) {
+        graph.removeVertex(v);
+      }
+      LabelCache cache = model.getDatabase().getLabelCache();
+      for (Map.Entry<ElementId<?>, String> entry : labels.entrySet()) {
+        cache.put(entry.getKey(), entry.getValue());
+      }
+      for (Vertex v : vertices) {
+        graph.addVertex(v);
+      }
+      for (Edge e : edges) {
+        graph.addEdge(e, e.getVertex(Direction.OUT), e.getVertex(Direction.IN), EdgeType.DIRECTED);
+      }
+      Layout<Vertex, Edge> layout = visualizationModel.getGraphLayout();
+      IncrementalLayout<Vertex, Edge> incremental = IncrementalLayout.find(layout);
+      if (incremental != null) {
+        incremental.seed(new StaticLayout<Vertex, Edge>(graph, new Transformer<Vertex, Point2D>() {
+          @Override
+          public Point2D transform(Vertex v) {
+            return locations.get(v);
+          }
+        }, layout.getSize()));
+      } else {
+        for (Vertex v : vertices) {
+          layout.setLocation(v, locations.get(v));
+          layout.lock(v, true);
+        }
+      }
+    } finally {
+      if (relaxer != null) {
+        relaxer.resume();
+      }
+    }
+    visualizationModel.fireStateChanged();
+  }
+
+  private static Object readId(ByteBuffer buffer) {
+    byte type = buffer.get();
+    if (type == ID_LONG) {
+      return buffer.getLong();
+    }
+    return readString(buffer);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF8);
+  }
+
+  private static final class Writer {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    private Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    private void writeId(Object id) throws IOException {
+      if (id instanceof Long) {
+        ensure(9);
+        buffer.put(ID_LONG).putLong((Long) id);
+      } else {
+        ensure(1);
+        buffer.put(ID_STRING);
+        writeString(String.valueOf(id));
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      ensure(4);
+      if (value == null) {
+        buffer.putInt(-1);
+        return;
+      }
+      byte[] bytes = value.getBytes(UTF8);
+      buffer.putInt(bytes.length);
+      if (bytes.length > buffer.capacity()) {
+        flush();
+        ByteBuffer large = ByteBuffer.wrap(bytes);
+        while (large.hasRemaining()) {
+          channel.write(large);
+        }
+      } else {
+        ensure(bytes.length);
+        buffer.put(bytes);
+      }
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.layout;
+
+import edu.uci.ics.jung.graph.Graph;
+
+/**
+ * A Fruchterman-Reingold layout that approximates the repulsion using a
+ * Barnes-Hut quadtree.
+ * <p/>
+ * The vertices are put into a quadtree each iteration. A cell that is far
+ * enough away, that is the ratio of its width to its distance is below
+ * {@link #getTheta() theta}, acts as one body at its center of mass. The
+ * cells that contain the vertex itself are always opened and its own body
+ * is left out, so a vertex does not repulse itself. This makes an
+ * iteration O(V log V) instead of O(V&sup2;). A theta of 0 gives the exact
+ * forces, larger values are faster and less accurate.
+ * <p/>
+ * The layout stops after {@link #getMaxIterations()} iterations or when it
+ * has cooled down.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 15:40
+ */
+public class BarnesHutLayout<V, E> extends ForceDirectedLayout<V, E> {
+
+  private static final int MAX_DEPTH = 32;
+
+  private double theta = 0.8;
+
+  public BarnesHutLayout(Graph<V, E> graph) {
+    super(graph, 200);
+  }
+
+  public double getTheta() {
+    return theta;
+  }
+
+  public void setTheta(double theta) {
+    if (theta < 0) {
+      throw new IllegalArgumentException("Theta must not be negative: " + theta);
+    }
+    this.theta = theta;
+  }
+
+  @Override
+  protected void computeForces(Forces<V> f, double k) {
+    int n = f.size();
+    double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+    for (int i = 0; i < n; i++) {
+      minX = Math.min(minX, f.xs[i]);
+      minY = Math.min(minY, f.ys[i]);
+      maxX = Math.max(maxX, f.xs[i]);
+      maxY = Math.max(maxY, f.ys[i]);
+    }
+    Quad root = new Quad(minX, minY, Math.max(Math.max(maxX - minX, maxY - minY), 1) + 1);
+    for (int i = 0; i < n; i++) {
+      insert(f, root, i, 0);
+    }
+    double k2 = k * k;
+    for (int i = 0; i < n; i++) {
+      repulse(f, root, i, true, k2);
+    }
+    attract(f, f.dxs, f.dys, 0, f.edgeCount, k);
+  }
+
+  private static void insert(Forces<?> f, Quad q, int i, int depth) {
+    double px = f.xs[i];
+    double py = f.ys[i];
+    if (q.mass == 0) {
+      q.mass = 1;
+      q.sx = px;
+      q.sy = py;
+      q.body = i;
+      return;
+    }
+    if (q.children == null) {
+      if (depth >= MAX_DEPTH) {
+        // (almost) coincident points are kept together in one leaf
+        q.mass++;
+        q.sx += px;
+        q.sy += py;
+        return;
+      }
+      q.subdivide();
+      int b = q.body;
+      q.body = -1;
+      insert(f, q.child(f.xs[b], f.ys[b]), b, depth + 1);
+    }
+    q.mass++;
+    q.sx += px;
+    q.sy += py;
+    insert(f, q.child(px, py), i, depth + 1);
+  }
+
+  /**
+   * Adds the repulsion of the vertices in the cell to vertex {@code i}.
+   *
+   * @param own whether the cell contains the vertex itself
+   */
+  private void repulse(Forces<?> f, Quad q, int i, boolean own, double k2) {
+    if (q.mass == 0) {
+      return;
+    }
+    if (q.children != null) {
+      double xd = f.xs[i] - q.sx / q.mass;
+      double yd = f.ys[i] - q.sy / q.mass;
+      double d2 = xd * xd + yd * yd;
+      if (own || d2 == 0 || q.size * q.size / d2 >= theta * theta) {
+        Quad ownChild = own ? q.child(f.xs[i], f.ys[i]) : null;
+        for (Quad c : q.children) {
+          repulse(f, c, i, c == ownChild, k2);
+        }
+        return;
+      }
+      repulse(f, i, q.sx / q.mass, q.sy / q.mass, q.mass, k2);
+      return;
+    }
+    double mass = q.mass;
+    double sx = q.sx;
+    double sy = q.sy;
+    if (own) {
+      // the leaf of the vertex itself, leave its own body out
+      mass -= 1;
+      sx -= f.xs[i];
+      sy -= f.ys[i];
+      if (mass == 0) {
+        return;
+      }
+    }
+    repulse(f, i, sx / mass, sy / mass, mass, k2);
+  }
+
+  private static final class Quad {
+    private final double x;
+    private final double y;
+    private final double size;
+
+    private double mass;
+    private double sx;
+    private double sy;
+    private int body = -1;
+    private Quad[] children;
+
+    private Quad(double x, double y, double size) {
+      this.x = x;
+      this.y = y;
+      this.size = size;
+    }
+
+    private void subdivide() {
+      double h = size / 2;
+      children = new Quad[] {
+          new Quad(x, y, h), new Quad(x + h, y, h),
+          new Quad(x, y + h, h), new Quad(x + h, y + h, h)
+      };
+    }
+
+    private Quad child(double px, double py) {
+      double h = size / 2;
+      int idx = (px < x + h ? 0 : 1) + (py < y + h ? 0 : 2);
+      return children[idx];
+    }
+  }
+}
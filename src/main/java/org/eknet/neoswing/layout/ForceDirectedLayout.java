@@ -0,0 +1,342 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.layout;
+
+import edu.uci.ics.jung.algorithms.layout.AbstractLayout;
+import edu.uci.ics.jung.algorithms.layout.util.RandomLocationTransformer;
+import edu.uci.ics.jung.algorithms.util.IterativeContext;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Pair;
+import org.apache.commons.collections15.Transformer;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Base class of the Fruchterman-Reingold layouts.
+ * <p/>
+ * Each {@link #step()} copies the vertex positions and the edges into
+ * arrays, lets the subclass compute the displacement of each vertex in
+ * {@link #computeForces(Forces, double)} and moves the vertices by at most
+ * the current temperature. The temperature cools down with every
+ * iteration; the layout is done after {@link #getMaxIterations()}
+ * iterations or when it has cooled down.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 18:30
+ */
+public abstract class ForceDirectedLayout<V, E> extends AbstractLayout<V, E> implements IterativeContext {
+
+  private static final Random random = new Random();
+
+  private int maxIterations;
+  private int iteration;
+  private double initialTemperature;
+  private double temperature;
+  private boolean sized = false;
+
+  protected ForceDirectedLayout(Graph<V, E> graph, int maxIterations) {
+    super(graph);
+    this.maxIterations = maxIterations;
+  }
+
+  public int getMaxIterations() {
+    return maxIterations;
+  }
+
+  public void setMaxIterations(int maxIterations) {
+    this.maxIterations = maxIterations;
+  }
+
+  protected int getIteration() {
+    return iteration;
+  }
+
+  protected double getTemperature() {
+    return temperature;
+  }
+
+  @Override
+  public void setSize(Dimension size) {
+    if (!sized) {
+      Transformer<V, Point2D> initializer = createInitializer(size);
+      if (initializer != null) {
+        setInitializer(initializer);
+      }
+      sized = true;
+    }
+    super.setSize(size);
+  }
+
+  /**
+   * Returns the positions of vertices that have none yet, or {@code null}
+   * to keep the current initializer. This is called with the first size.
+   *
+   * @param size
+   * @return
+   */
+  protected Transformer<V, Point2D> createInitializer(Dimension size) {
+    return new RandomLocationTransformer<V>(size);
+  }
+
+  @Override
+  public synchronized void initialize() {
+    iteration = 0;
+    initialTemperature = getInitialTemperature();
+    temperature = initialTemperature;
+  }
+
+  @Override
+  public void reset() {
+    initialize();
+  }
+
+  @Override
+  public synchronized boolean done() {
+    return iteration >= maxIterations || temperature < 1;
+  }
+
+  protected double getInitialTemperature() {
+    Dimension d = getSize();
+    return d == null ? 60 : d.getWidth() / 10;
+  }
+
+  /**
+   * Returns the temperature after the given iteration. By default it
+   * decreases linearly to zero at {@link #getMaxIterations()}.
+   *
+   * @param initial
+   * @param current
+   * @param iteration
+   * @return
+   */
+  protected double cool(double initial, double current, int iteration) {
+    return initial * (1.0 - iteration / (double) maxIterations);
+  }
+
+  /**
+   * Returns the ideal distance of two vertices, the {@code k} of the
+   * Fruchterman-Reingold paper.
+   *
+   * @param size
+   * @param vertexCount
+   * @return
+   */
+  protected double getOptimalDistance(Dimension size, int vertexCount) {
+    if (size == null) {
+      return 60;
+    }
+    return Math.sqrt(size.getWidth() * size.getHeight() / vertexCount);
+  }
+
+  protected boolean isMovable(V v) {
+    return !isLocked(v);
+  }
+
+  /**
+   * Adds the displacement of each vertex to {@link Forces#dxs} and
+   * {@link Forces#dys}.
+   *
+   * @param forces
+   * @param k the ideal distance of two vertices
+   */
+  protected abstract void computeForces(Forces<V> forces, double k);
+
+  /**
+   * Called at the end of each step.
+   */
+  protected void afterStep() {
+  }
+
+  @Override
+  public synchronized void step() {
+    if (done()) {
+      return;
+    }
+    Forces<V> f = snapshot();
+    if (f == null) {
+      return;
+    }
+    Dimension size = getSize();
+    computeForces(f, getOptimalDistance(size, f.size()));
+    for (int i = 0; i < f.size(); i++) {
+      V v = f.vertices.get(i);
+      if (!isMovable(v)) {
+        continue;
+      }
+      double len = Math.max(Math.sqrt(f.dxs[i] * f.dxs[i] + f.dys[i] * f.dys[i]), 0.1);
+      double move = Math.min(len, temperature);
+      setLocation(v, clamp(f.xs[i] + f.dxs[i] / len * move, f.ys[i] + f.dys[i] / len * move));
+    }
+    iteration++;
+    temperature = cool(initialTemperature, temperature, iteration);
+    afterStep();
+  }
+
+  private Forces<V> snapshot() {
+    List<V> vertices;
+    List<E> edges;
+    try {
+      vertices = new ArrayList<V>(getGraph().getVertices());
+      edges = new ArrayList<E>(getGraph().getEdges());
+    } catch (ConcurrentModificationException e) {
+      return null;
+    }
+    if (vertices.isEmpty()) {
+      return null;
+    }
+    Forces<V> f = new Forces<V>(vertices, edges.size());
+    for (int i = 0; i < vertices.size(); i++) {
+      V v = vertices.get(i);
+      f.index.put(v, i);
+      Point2D p = transform(v);
+      f.xs[i] = p.getX();
+      f.ys[i] = p.getY();
+    }
+    for (E e : edges) {
+      Pair<V> ends = getGraph().getEndpoints(e);
+      if (ends == null) {
+        continue;
+      }
+      Integer a = f.index.get(ends.getFirst());
+      Integer b = f.index.get(ends.getSecond());
+      if (a != null && b != null && a.intValue() != b.intValue()) {
+        f.sources[f.edgeCount] = a;
+        f.targets[f.edgeCount] = b;
+        f.edgeCount++;
+      }
+    }
+    return f;
+  }
+
+  protected Point2D clamp(double x, double y) {
+    Dimension size = getSize();
+    if (size != null) {
+      x = Math.max(0, Math.min(size.getWidth(), x));
+      y = Math.max(0, Math.min(size.getHeight(), y));
+    }
+    return new Point2D.Double(x, y);
+  }
+
+  /**
+   * Adds the repulsion of the given body, which may be the center of mass
+   * of several vertices, to the displacement of vertex {@code i}.
+   *
+   * @param f
+   * @param i
+   * @param x
+   * @param y
+   * @param mass
+   * @param k2 the square of the ideal distance
+   */
+  protected static void repulse(Forces<?> f, int i, double x, double y, double mass, double k2) {
+    double xd = f.xs[i] - x;
+    double yd = f.ys[i] - y;
+    double d2 = xd * xd + yd * yd;
+    if (d2 < 0.01) {
+      // push coincident vertices apart in a random direction
+      xd = random.nextDouble() - 0.5;
+      yd = random.nextDouble() - 0.5;
+      d2 = 0.01;
+    }
+    // repulsion k^2/d in direction of (xd,yd)/d
+    f.dxs[i] += xd * mass * k2 / d2;
+    f.dys[i] += yd * mass * k2 / d2;
+  }
+
+  /**
+   * Adds the repulsion of all other vertices to the displacement of vertex
+   * {@code i}.
+   *
+   * @param f
+   * @param i
+   * @param k2 the square of the ideal distance
+   */
+  protected static void repulseAll(Forces<?> f, int i, double k2) {
+    for (int j = 0; j < f.size(); j++) {
+      if (i != j) {
+        repulse(f, i, f.xs[j], f.ys[j], 1, k2);
+      }
+    }
+  }
+
+  /**
+   * Adds the attraction of the edges {@code from} to {@code to} to the
+   * given displacements of their end points.
+   *
+   * @param f
+   * @param ax
+   * @param ay
+   * @param from
+   * @param to
+   * @param k the ideal distance
+   */
+  protected static void attract(Forces<?> f, double[] ax, double[] ay, int from, int to, double k) {
+    for (int e = from; e < to; e++) {
+      int a = f.sources[e];
+      int b = f.targets[e];
+      double xd = f.xs[a] - f.xs[b];
+      double yd = f.ys[a] - f.ys[b];
+      double d = Math.max(Math.sqrt(xd * xd + yd * yd), 0.1);
+      // attraction d^2/k along the edge
+      double fx = xd * d / k;
+      double fy = yd * d / k;
+      ax[a] -= fx;
+      ay[a] -= fy;
+      ax[b] += fx;
+      ay[b] += fy;
+    }
+  }
+
+  /**
+   * The positions and displacements of one iteration, indexed like the
+   * vertex list, and the end points of the edges without loops.
+   */
+  protected static final class Forces<V> {
+    protected final List<V> vertices;
+    protected final Map<V, Integer> index;
+    protected final double[] xs;
+    protected final double[] ys;
+    protected final double[] dxs;
+    protected final double[] dys;
+    protected final int[] sources;
+    protected final int[] targets;
+    protected int edgeCount;
+
+    private Forces(List<V> vertices, int edges) {
+      int n = vertices.size();
+      this.vertices = vertices;
+      this.index = new HashMap<V, Integer>(n * 2);
+      this.xs = new double[n];
+      this.ys = new double[n];
+      this.dxs = new double[n];
+      this.dys = new double[n];
+      this.sources = new int[edges];
+      this.targets = new int[edges];
+    }
+
+    protected int size() {
+      return vertices.size();
+    }
+  }
+}
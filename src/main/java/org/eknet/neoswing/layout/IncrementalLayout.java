@@ -0,0 +1,235 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.layout;
+
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.algorithms.layout.LayoutDecorator;
+import edu.uci.ics.jung.graph.Graph;
+import org.apache.commons.collections15.Transformer;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A force directed layout that only moves vertices that have been added
+ * since the last run.
+ * <p/>
+ * Vertices that have been laid out once keep their position. A new vertex
+ * is placed near its already positioned neighbors and then relaxed using
+ * Fruchterman-Reingold forces, while all other vertices stay pinned. So
+ * expanding a node in a large view costs time proportional to the new
+ * vertices and does not reshuffle the picture.
+ * <p/>
+ * The layout checks for new vertices in {@link #done()}, so a finished
+ * relaxer must be restarted after vertices have been added.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 15:10
+ */
+public class IncrementalLayout<V, E> extends ForceDirectedLayout<V, E> {
+
+  private final Set<V> placed = new HashSet<V>();
+  private final Set<V> active = new LinkedHashSet<V>();
+  private final Random random = new Random();
+
+  private double edgeLength = 60;
+
+  public IncrementalLayout(Graph<V, E> graph) {
+    super(graph, 80);
+    setInitializer(new Transformer<V, Point2D>() {
+      @Override
+      public Point2D transform(V v) {
+        return seedLocation(v);
+      }
+    });
+  }
+
+  public IncrementalLayout(Graph<V, E> graph, Layout<V, E> seed) {
+    this(graph);
+    seed(seed);
+  }
+
+  /**
+   * Returns the incremental layout behind the given layout or {@code null}.
+   * The visualization model wraps layouts, so this should be used to check
+   * the layout of a viewer.
+   *
+   * @param layout
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public static <V, E> IncrementalLayout<V, E> find(Layout<V, E> layout) {
+    while (layout instanceof LayoutDecorator) {
+      layout = ((LayoutDecorator<V, E>) layout).getDelegate();
+    }
+    return layout instanceof IncrementalLayout ? (IncrementalLayout<V, E>) layout : null;
+  }
+
+  /**
+   * Takes over the positions of all vertices from the given layout and
+   * marks them as placed.
+   *
+   * @param seed
+   */
+  public synchronized void seed(Layout<V, E> seed) {
+    if (seed == null || seed == this) {
+      return;
+    }
+    Dimension size = seed.getSize();
+    if (size != null && getSize() == null) {
+      setSize(size);
+    }
+    for (V v : new ArrayList<V>(getGraph().getVertices())) {
+      Point2D p = seed.transform(v);
+      if (p != null) {
+        setLocation(v, new Point2D.Double(p.getX(), p.getY()));
+        placed.add(v);
+      }
+    }
+  }
+
+  public double getEdgeLength() {
+    return edgeLength;
+  }
+
+  public void setEdgeLength(double edgeLength) {
+    this.edgeLength = edgeLength;
+  }
+
+  @Override
+  protected Transformer<V, Point2D> createInitializer(Dimension size) {
+    // keep placing new vertices near their neighbors
+    return null;
+  }
+
+  @Override
+  protected double getInitialTemperature() {
+    return edgeLength;
+  }
+
+  @Override
+  protected double cool(double initial, double current, int iteration) {
+    return current * 0.95;
+  }
+
+  @Override
+  protected double getOptimalDistance(Dimension size, int vertexCount) {
+    return edgeLength;
+  }
+
+  @Override
+  protected boolean isMovable(V v) {
+    return active.contains(v) && !isLocked(v);
+  }
+
+  @Override
+  public synchronized boolean done() {
+    if (active.isEmpty()) {
+      discover();
+    }
+    return active.isEmpty();
+  }
+
+  /**
+   * Computes the forces on the new vertices only, the others stay where
+   * they are.
+   */
+  @Override
+  protected void computeForces(Forces<V> f, double k) {
+    double k2 = k * k;
+    for (V v : active) {
+      Integer i = f.index.get(v);
+      if (i != null) {
+        repulseAll(f, i, k2);
+      }
+    }
+    attract(f, f.dxs, f.dys, 0, f.edgeCount, k);
+  }
+
+  @Override
+  protected void afterStep() {
+    if (getIteration() >= getMaxIterations() || getTemperature() < 0.5) {
+      placed.addAll(active);
+      active.clear();
+    }
+  }
+
+  /**
+   * Looks for vertices that have not been placed yet and starts a new
+   * relaxation round for them. Vertices that have been removed from the
+   * graph are forgotten.
+   *
+   * @return {@code true} if new vertices have been found
+   */
+  private boolean discover() {
+    List<V> vertices;
+    try {
+      vertices = new ArrayList<V>(getGraph().getVertices());
+    } catch (ConcurrentModificationException e) {
+      return false;
+    }
+    if (placed.size() > vertices.size()) {
+      Set<V> current = new HashSet<V>(vertices);
+      placed.retainAll(current);
+      locations.keySet().retainAll(current);
+    }
+    for (V v : vertices) {
+      if (!placed.contains(v)) {
+        active.add(v);
+      }
+    }
+    if (active.isEmpty()) {
+      return false;
+    }
+    // seed positions now, each near its neighbors that already have one
+    for (V v : active) {
+      transform(v);
+    }
+    initialize();
+    return true;
+  }
+
+  private Point2D seedLocation(V v) {
+    double x = 0;
+    double y = 0;
+    int n = 0;
+    for (V u : getGraph().getNeighbors(v)) {
+      if (u != v && locations.containsKey(u)) {
+        Point2D p = transform(u);
+        x += p.getX();
+        y += p.getY();
+        n++;
+      }
+    }
+    if (n == 0) {
+      Dimension size = getSize();
+      if (size == null) {
+        return new Point2D.Double(random.nextDouble() * 600, random.nextDouble() * 600);
+      }
+      return new Point2D.Double(random.nextDouble() * size.getWidth(), random.nextDouble() * size.getHeight());
+    }
+    double angle = random.nextDouble() * 2 * Math.PI;
+    return clamp(x / n + Math.cos(angle) * edgeLength, y / n + Math.sin(angle) * edgeLength);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.layout;
+
+import edu.uci.ics.jung.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Fruchterman-Reingold layout that computes the forces on all cores.
+ * <p/>
+ * Each iteration the vertices are split into one partition per core and
+ * the repulsion of a partition is computed in its own task; the tasks
+ * write to disjoint parts of the displacement arrays. The edges are split
+ * the same way, but the attraction of an edge moves both end points, so
+ * each task sums into its own accumulator that are added up afterwards.
+ * The tasks never need to synchronize with each other.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:15
+ */
+public class ParallelForceLayout<V, E> extends ForceDirectedLayout<V, E> {
+
+  private static final int parallelism = Runtime.getRuntime().availableProcessors();
+
+  // the attraction accumulators of the edge partitions, reused between iterations
+  private double[][] accX = new double[0][];
+  private double[][] accY = new double[0][];
+
+  public ParallelForceLayout(Graph<V, E> graph) {
+    super(graph, 200);
+  }
+
+  @Override
+  protected void computeForces(final Forces<V> f, final double k) {
+    final int n = f.size();
+    final double k2 = k * k;
+    int parts = Math.max(1, Math.min(parallelism, n / 64));
+    ensureAccumulators(parts, n);
+    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(parts * 2);
+    for (int p = 0; p < parts; p++) {
+      final int from = n * p / parts;
+      final int to = n * (p + 1) / parts;
+      tasks.add(new Callable<Object>() {
+        @Override
+        public Object call() {
+          for (int i = from; i < to; i++) {
+            repulseAll(f, i, k2);
+          }
+          return null;
+        }
+      });
+      final int edgeFrom = f.edgeCount * p / parts;
+      final int edgeTo = f.edgeCount * (p + 1) / parts;
+      final double[] ax = accX[p];
+      final double[] ay = accY[p];
+      tasks.add(new Callable<Object>() {
+        @Override
+        public Object call() {
+          attract(f, ax, ay, edgeFrom, edgeTo, k);
+          return null;
+        }
+      });
+    }
+    if (!runAll(tasks)) {
+      // interrupted, do not move anything
+      Arrays.fill(f.dxs, 0d);
+      Arrays.fill(f.dys, 0d);
+      return;
+    }
+    for (int p = 0; p < parts; p++) {
+      double[] ax = accX[p];
+      double[] ay = accY[p];
+      for (int i = 0; i < n; i++) {
+        f.dxs[i] += ax[i];
+        f.dys[i] += ay[i];
+      }
+    }
+  }
+
+  private void ensureAccumulators(int parts, int n) {
+    if (accX.length != parts || accX[0].length < n) {
+      accX = new double[parts][n];
+      accY = new double[parts][n];
+    } else {
+      for (int p = 0; p < parts; p++) {
+        Arrays.fill(accX[p], 0, n, 0d);
+        Arrays.fill(accY[p], 0, n, 0d);
+      }
+    }
+  }
+
+  private static boolean runAll(List<Callable<Object>> tasks) {
+    try {
+      for (Future<Object> f : Pool.executor.invokeAll(tasks)) {
+        f.get();
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Error computing layout forces", e.getCause());
+    }
+  }
+
+  /**
+   * Holds the worker threads that are shared by all instances. The pool is
+   * created on first use.
+   */
+  private static final class Pool {
+    private static final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+      private final AtomicInteger counter = new AtomicInteger(0);
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "neoswing-layout-" + counter.incrementAndGet());
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+      }
+    });
+  }
+}
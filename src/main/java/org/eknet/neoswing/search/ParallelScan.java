@@ -0,0 +1,274 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.search;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphDb;
+import org.eknet.neoswing.io.BulkImporter;
+import org.eknet.neoswing.io.Progress;
+import org.eknet.neoswing.utils.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches all vertices or edges of a database with several threads.
+ * <p/>
+ * Blueprints offers no way to split the elements of a graph into ranges,
+ * so the calling thread iterates the elements and hands their ids in
+ * batches to worker threads. The workers look the elements up in their
+ * own transaction and check the predicate, which is where the time is
+ * spent for unindexed searches. Matches are passed to the sink on the
+ * calling thread as soon as they are found.
+ * <p/>
+ * The scan stops when the result limit is reached, when the sink or the
+ * {@link Progress} returns {@code false} or when the calling thread is
+ * interrupted. At most two
+ * batches per thread are pending, so a stopped scan does not leave work
+ * behind.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 09:10
+ */
+public class ParallelScan {
+  private static final Logger log = LoggerFactory.getLogger(ParallelScan.class);
+
+  private static final AtomicInteger counter = new AtomicInteger(0);
+
+  private final GraphDb db;
+  private final int threads;
+  private int batchSize = 1000;
+  private int limit = 1000;
+  private Progress progress;
+
+  public ParallelScan(GraphDb db) {
+    this(db, BulkImporter.defaultThreads(db));
+  }
+
+  public ParallelScan(GraphDb db, int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+    }
+    this.db = db;
+    this.threads = threads;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Sets the maximum number of matches after which the scan stops.
+   *
+   * @param limit
+   */
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+
+  public Progress getProgress() {
+    return progress;
+  }
+
+  /**
+   * Sets a callback that is told the number of elements scanned after
+   * each batch. If it returns {@code false}, the scan stops.
+   *
+   * @param progress
+   */
+  public void setProgress(Progress progress) {
+    this.progress = progress;
+  }
+
+  /**
+   * Scans all elements of the given type. This must be called inside a
+   * transaction; the matches are looked up again in this transaction
+   * before they are passed to the sink.
+   *
+   * @param type {@link Vertex} or {@link Edge}
+   * @param predicate is called concurrently by the worker threads
+   * @param sink receives the matches, returns {@code false} to stop the scan
+   * @return the number of matches passed to the sink
+   * @throws InterruptedException if the calling thread is interrupted
+   */
+  public int scan(Class<? extends Element> type, Function<Element, Boolean> predicate, Function<Element, Boolean> sink)
+      throws InterruptedException {
+    Run run = new Run(predicate, sink);
+    long start = System.currentTimeMillis();
+    long scanned = 0;
+    try {
+      Iterable<? extends Element> elements = type == Vertex.class ? db.getVertices() : db.getEdges();
+      List<ElementId<?>> batch = new ArrayList<ElementId<?>>(batchSize);
+      for (Element el : elements) {
+        batch.add(el instanceof Vertex ? ElementId.vertexId((Vertex) el) : ElementId.edgeId((Edge) el));
+        scanned++;
+        if (batch.size() >= batchSize) {
+          if (!run.submit(batch) || (progress != null && !progress.update(scanned))) {
+            break;
+          }
+          batch = new ArrayList<ElementId<?>>(batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        run.submit(batch);
+      }
+      run.awaitIdle();
+    } finally {
+      run.stop();
+    }
+    log.info("Scanned " + scanned + " elements with " + threads + " threads, found " + run.found
+        + " (" + (System.currentTimeMillis() - start) + "ms)");
+    return run.found;
+  }
+
+  private final class Run {
+    private final Function<Element, Boolean> predicate;
+    private final Function<Element, Boolean> sink;
+    private final BlockingQueue<ElementId<?>> matches = new LinkedBlockingQueue<ElementId<?>>();
+    private final Semaphore pending = new Semaphore(threads * 2);
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final ExecutorService executor;
+    private int found;
+
+    private Run(Function<Element, Boolean> predicate, Function<Element, Boolean> sink) {
+      this.predicate = predicate;
+      this.sink = sink;
+      this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        private final int id = counter.incrementAndGet();
+        private int n = 0;
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "neoswing-scan-" + id + "-" + (n++));
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+
+    /**
+     * Waits for a free slot, passing the matches found meanwhile to the
+     * sink, and submits the batch.
+     *
+     * @return {@code false} if the scan should stop
+     */
+    private boolean submit(final List<ElementId<?>> batch) throws InterruptedException {
+      while (!pending.tryAcquire(50, TimeUnit.MILLISECONDS)) {
+        if (!drain()) {
+          return false;
+        }
+      }
+      if (!drain()) {
+        pending.release();
+        return false;
+      }
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            check(batch);
+          } finally {
+            pending.release();
+          }
+        }
+      });
+      return true;
+    }
+
+    private void check(List<ElementId<?>> batch) {
+      GraphDb.Tx tx = db.beginTx();
+      try {
+        for (ElementId<?> id : batch) {
+          if (stopped.get()) {
+            break;
+          }
+          Element el = db.lookup(id);
+          if (el != null && Boolean.TRUE.equals(predicate.apply(el))) {
+            matches.add(id);
+          }
+        }
+        tx.success();
+      } catch (RuntimeException e) {
+        log.error("Error scanning elements", e);
+      } finally {
+        tx.finish();
+      }
+    }
+
+    private void awaitIdle() throws InterruptedException {
+      int permits = threads * 2;
+      while (!pending.tryAcquire(permits, 50, TimeUnit.MILLISECONDS)) {
+        if (!drain()) {
+          return;
+        }
+      }
+      pending.release(permits);
+      drain();
+    }
+
+    /**
+     * Passes the matches found so far to the sink.
+     *
+     * @return {@code false} if the scan should stop
+     * @throws InterruptedException
+     */
+    private boolean drain() throws InterruptedException {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      ElementId<?> id;
+      while (!stopped.get() && (id = matches.poll()) != null) {
+        Element el = db.lookup(id);
+        if (el == null) {
+          continue;
+        }
+        found++;
+        if (!Boolean.TRUE.equals(sink.apply(el)) || found >= limit) {
+          stopped.set(true);
+        }
+      }
+      return !stopped.get();
+    }
+
+    private void stop() {
+      stopped.set(true);
+      executor.shutdown();
+    }
+  }
+}
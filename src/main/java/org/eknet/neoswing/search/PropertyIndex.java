@@ -0,0 +1,458 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.search;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An in-memory inverted index over the property values of one database.
+ * <p/>
+ * Values are split into lower case words and every word points to the
+ * elements and property keys it occurs in. The words are kept sorted, so
+ * that words can be looked up by prefix, too. Only strings, numbers,
+ * booleans and characters are indexed.
+ * <p/>
+ * The index is optional: it is built by scanning all vertices and edges in
+ * a background thread the first time it is asked for via {@link #isComplete()}
+ * or {@link #start()}. Afterwards it is kept current by {@link GraphDb} when
+ * properties are changed or elements are deleted. Changes made to the
+ * database outside of NeoSwing are not noticed; use {@link #rebuild()} in
+ * that case.
+ * <p/>
+ * Properties changed while the initial scan is running may be indexed with
+ * their old value, too, which can only produce superfluous hits.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 23:45
+ */
+public final class PropertyIndex {
+  private static final Logger log = LoggerFactory.getLogger(PropertyIndex.class);
+
+  private static final int maxValueLength = 4096;
+
+  private final GraphDb db;
+  private final ConcurrentNavigableMap<String, Set<Posting>> terms = new ConcurrentSkipListMap<String, Set<Posting>>();
+
+  private volatile boolean loaded = false;
+  private volatile boolean complete = false;
+  private volatile boolean stopped = false;
+  private Thread scanner;
+
+  public PropertyIndex(GraphDb db) {
+    this.db = db;
+  }
+
+  /**
+   * Starts building the index, if this has not been done yet.
+   */
+  public synchronized void start() {
+    if (loaded || stopped) {
+      return;
+    }
+    loaded = true;
+    startScanner();
+  }
+
+  /**
+   * Whether the index has been asked for. Until then, changes are not
+   * tracked.
+   *
+   * @return
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Whether all elements have been indexed. This starts building the
+   * index, if it has not been started yet.
+   *
+   * @return
+   */
+  public boolean isComplete() {
+    start();
+    return complete;
+  }
+
+  /**
+   * Discards the index and scans the database again, if it has been
+   * started before.
+   */
+  public synchronized void rebuild() {
+    if (!loaded || stopped) {
+      return;
+    }
+    stopScanner();
+    complete = false;
+    terms.clear();
+    startScanner();
+  }
+
+  public synchronized void close() {
+    stopped = true;
+    stopScanner();
+    terms.clear();
+  }
+
+  /**
+   * Searches elements whose properties contain all words of the given
+   * text. If the text ends with {@code *}, the last word is matched as
+   * prefix.
+   *
+   * @param key the property key to search, or {@code null} to search all
+   * @param text
+   * @param type {@link Vertex} or {@link Edge}
+   * @param limit the maximum number of results
+   * @return the ids of the matching elements
+   */
+  public Set<ElementId<?>> search(String key, String text, Class<? extends Element> type, int limit) {
+    TextQuery query = TextQuery.parse(text);
+    Set<ElementId<?>> result = null;
+    for (int i = 0; i < query.words.size(); i++) {
+      String word = query.words.get(i);
+      Set<ElementId<?>> found = new HashSet<ElementId<?>>();
+      if (query.prefix && i == query.words.size() - 1) {
+        for (Set<Posting> postings : terms.subMap(word, word + Character.MAX_VALUE).values()) {
+          collect(postings, key, type, result, found);
+        }
+      } else {
+        Set<Posting> postings = terms.get(word);
+        if (postings != null) {
+          collect(postings, key, type, result, found);
+        }
+      }
+      result = found;
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    if (result == null) {
+      return Collections.emptySet();
+    }
+    Set<ElementId<?>> limited = new LinkedHashSet<ElementId<?>>();
+    for (ElementId<?> id : result) {
+      if (limited.size() >= limit) {
+        break;
+      }
+      limited.add(id);
+    }
+    return limited;
+  }
+
+  /**
+   * Estimates the number of results of {@link #search(String, String, Class, int)}
+   * from the number of elements containing the rarest word of the text.
+   * This ignores the key and the element type.
+   *
+   * @param text
+   * @return an upper bound of the results or -1, if the text has no words
+   */
+  public long estimate(String text) {
+    TextQuery query = TextQuery.parse(text);
+    long min = -1;
+    for (int i = 0; i < query.words.size(); i++) {
+      String word = query.words.get(i);
+      long count = 0;
+      if (query.prefix && i == query.words.size() - 1) {
+        for (Set<Posting> postings : terms.subMap(word, word + Character.MAX_VALUE).values()) {
+          count += postings.size();
+          if (min >= 0 && count >= min) {
+            break;
+          }
+        }
+      } else {
+        Set<Posting> postings = terms.get(word);
+        count = postings == null ? 0 : postings.size();
+      }
+      if (min < 0 || count < min) {
+        min = count;
+      }
+    }
+    return min;
+  }
+
+  /**
+   * Checks the properties of the given element the same way as
+   * {@link #search(String, String, Class, int)}. This is used to search
+   * without the index while it is being built.
+   *
+   * @param element
+   * @param key the property key to search, or {@code null} to search all
+   * @param text
+   * @return
+   */
+  public static boolean matches(Element element, String key, String text) {
+    TextQuery query = TextQuery.parse(text);
+    if (query.words.isEmpty()) {
+      return false;
+    }
+    Set<String> words = new HashSet<String>();
+    if (key != null && !key.isEmpty()) {
+      tokenize(element.getProperty(key), words);
+    } else {
+      for (String k : element.getPropertyKeys()) {
+        tokenize(element.getProperty(k), words);
+      }
+    }
+    for (int i = 0; i < query.words.size(); i++) {
+      String word = query.words.get(i);
+      if (query.prefix && i == query.words.size() - 1) {
+        boolean found = false;
+        for (String w : words) {
+          if (w.startsWith(word)) {
+            found = true;
+            break;
+          }
+        }
+        if (!found) {
+          return false;
+        }
+      } else if (!words.contains(word)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Updates the index after a property has been changed.
+   *
+   * @param id
+   * @param key
+   * @param oldValue the previous value or {@code null}
+   * @param newValue the new value or {@code null}, if the property has been removed
+   */
+  public void propertyChanged(ElementId<?> id, String key, Object oldValue, Object newValue) {
+    if (!loaded) {
+      return;
+    }
+    remove(id, key, oldValue);
+    add(id, key, newValue);
+  }
+
+  /**
+   * Removes a deleted element from the index.
+   *
+   * @param id
+   * @param properties the properties of the element
+   */
+  public void elementRemoved(ElementId<?> id, Map<String, Object> properties) {
+    if (!loaded) {
+      return;
+    }
+    for (Map.Entry<String, Object> entry : properties.entrySet()) {
+      remove(id, entry.getKey(), entry.getValue());
+    }
+  }
+
+  private static void collect(Set<Posting> postings, String key, Class<? extends Element> type,
+                              Set<ElementId<?>> previous, Set<ElementId<?>> found) {
+    for (Posting p : postings) {
+      if (p.id.getElementClass() != type) {
+        continue;
+      }
+      if (key != null && !key.isEmpty() && !key.equals(p.key)) {
+        continue;
+      }
+      if (previous == null || previous.contains(p.id)) {
+        found.add(p.id);
+      }
+    }
+  }
+
+  private synchronized void add(ElementId<?> id, String key, Object value) {
+    Set<String> words = new HashSet<String>();
+    tokenize(value, words);
+    for (String word : words) {
+      Set<Posting> postings = terms.get(word);
+      if (postings == null) {
+        postings = Collections.newSetFromMap(new ConcurrentHashMap<Posting, Boolean>(4));
+        terms.put(word, postings);
+      }
+      postings.add(new Posting(id, key));
+    }
+  }
+
+  private synchronized void remove(ElementId<?> id, String key, Object value) {
+    Set<String> words = new HashSet<String>();
+    tokenize(value, words);
+    for (String word : words) {
+      Set<Posting> postings = terms.get(word);
+      if (postings != null && postings.remove(new Posting(id, key)) && postings.isEmpty()) {
+        terms.remove(word);
+      }
+    }
+  }
+
+  /**
+   * Splits the value into lower case words at all characters that are
+   * neither letters nor digits.
+   *
+   * @param value
+   * @param words
+   */
+  static void tokenize(Object value, Set<String> words) {
+    if (!(value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character)) {
+      return;
+    }
+    String text = value.toString();
+    int length = Math.min(text.length(), maxValueLength);
+    int start = -1;
+    for (int i = 0; i <= length; i++) {
+      boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        words.add(text.substring(start, i).toLowerCase());
+        start = -1;
+      }
+    }
+  }
+
+  private void startScanner() {
+    scanner = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        scan();
+      }
+    }, "neoswing-index-" + Integer.toHexString(db.getName().hashCode()));
+    scanner.setDaemon(true);
+    scanner.setPriority(Thread.MIN_PRIORITY);
+    scanner.start();
+  }
+
+  /**
+   * Detaches the current scanner, which stops at its next check. See
+   * {@link org.eknet.neoswing.DbScheduler} for why it is not interrupted.
+   */
+  private void stopScanner() {
+    scanner = null;
+  }
+
+  private boolean isCurrentScanner() {
+    synchronized (this) {
+      return !stopped && scanner == Thread.currentThread();
+    }
+  }
+
+  private void scan() {
+    long start = System.currentTimeMillis();
+    long n = 0;
+    GraphDb.Tx tx = db.beginTx();
+    try {
+      for (Vertex v : db.getVertices()) {
+        index(ElementId.vertexId(v), v);
+        if (++n % 10000 == 0 && !isCurrentScanner()) {
+          log.debug("Property index scan stopped after " + n + " elements");
+          // the scan only reads, so let finish() close the transaction quietly
+          tx.success();
+          return;
+        }
+      }
+      for (Edge e : db.getEdges()) {
+        index(ElementId.edgeId(e), e);
+        if (++n % 10000 == 0 && !isCurrentScanner()) {
+          log.debug("Property index scan stopped after " + n + " elements");
+          tx.success();
+          return;
+        }
+      }
+      tx.success();
+    } catch (RuntimeException e) {
+      log.error("Error building the property index after " + n + " elements", e);
+      tx.success();
+      synchronized (this) {
+        if (scanner == Thread.currentThread()) {
+          scanner = null;
+        }
+      }
+      return;
+    } finally {
+      tx.finish();
+    }
+    synchronized (this) {
+      if (isCurrentScanner()) {
+        complete = true;
+        scanner = null;
+        log.info("Indexed " + terms.size() + " words of " + n + " elements ("
+            + (System.currentTimeMillis() - start) + "ms)");
+      }
+    }
+  }
+
+  private void index(ElementId<?> id, Element element) {
+    for (String key : element.getPropertyKeys()) {
+      add(id, key, element.getProperty(key));
+    }
+  }
+
+  private static final class TextQuery {
+    private final List<String> words = new ArrayList<String>();
+    private boolean prefix;
+
+    private static TextQuery parse(String text) {
+      TextQuery query = new TextQuery();
+      String trimmed = text == null ? "" : text.trim();
+      query.prefix = trimmed.endsWith("*");
+      Set<String> words = new LinkedHashSet<String>();
+      tokenize(trimmed, words);
+      query.words.addAll(words);
+      return query;
+    }
+  }
+
+  private static final class Posting {
+    private final ElementId<?> id;
+    private final String key;
+
+    private Posting(ElementId<?> id, String key) {
+      this.id = id;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      Posting posting = (Posting) o;
+      return id.equals(posting.id) && key.equals(posting.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * id.hashCode() + key.hashCode();
+    }
+  }
+}
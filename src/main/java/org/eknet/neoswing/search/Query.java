@@ -0,0 +1,292 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.search;
+
+import com.tinkerpop.blueprints.Element;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A predicate over the properties of an element.
+ * <p/>
+ * Queries are built from comparisons of one property ({@link Eq},
+ * {@link Range}, {@link Prefix}) that are combined with {@link And} and
+ * {@link Or}. Numbers are compared by their value regardless of their
+ * type, other values must be of the same type to be comparable. See
+ * {@link QueryParser} for the text form and {@link QueryPlanner} for how
+ * queries are executed.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 11:20
+ */
+public abstract class Query {
+
+  private Query() {
+  }
+
+  public abstract boolean matches(Element element);
+
+  public static Query eq(String key, Object value) {
+    return new Eq(key, value);
+  }
+
+  /**
+   * Matches values between the given bounds.
+   *
+   * @param key
+   * @param lower the lower bound or {@code null}
+   * @param lowerInclusive
+   * @param upper the upper bound or {@code null}
+   * @param upperInclusive
+   * @return
+   */
+  public static Query range(String key, Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+    return new Range(key, lower, lowerInclusive, upper, upperInclusive);
+  }
+
+  public static Query prefix(String key, String prefix) {
+    return new Prefix(key, prefix);
+  }
+
+  public static Query and(List<Query> queries) {
+    return queries.size() == 1 ? queries.get(0) : new And(queries);
+  }
+
+  public static Query or(List<Query> queries) {
+    return queries.size() == 1 ? queries.get(0) : new Or(queries);
+  }
+
+  /**
+   * Compares two property values.
+   *
+   * @param a
+   * @param b
+   * @return the comparison result or {@code null}, if the values are not comparable
+   */
+  @SuppressWarnings("unchecked")
+  static Integer compare(Object a, Object b) {
+    if (a == null || b == null) {
+      return null;
+    }
+    if (a instanceof Number && b instanceof Number) {
+      if (isIntegral(a) && isIntegral(b)) {
+        long x = ((Number) a).longValue();
+        long y = ((Number) b).longValue();
+        return x < y ? -1 : (x == y ? 0 : 1);
+      }
+      return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+    if (a instanceof Comparable && a.getClass() == b.getClass()) {
+      return ((Comparable<Object>) a).compareTo(b);
+    }
+    return null;
+  }
+
+  private static boolean isIntegral(Object n) {
+    return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte;
+  }
+
+  /**
+   * Matches elements whose property equals the value.
+   */
+  public static final class Eq extends Query {
+    private final String key;
+    private final Object value;
+
+    private Eq(String key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public Object getValue() {
+      return value;
+    }
+
+    @Override
+    public boolean matches(Element element) {
+      Object v = element.getProperty(key);
+      if (v instanceof Number && value instanceof Number) {
+        return compare(v, value) == 0;
+      }
+      return value.equals(v);
+    }
+
+    @Override
+    public String toString() {
+      return key + " = " + value;
+    }
+  }
+
+  /**
+   * Matches elements whose property lies between two bounds.
+   */
+  public static final class Range extends Query {
+    private final String key;
+    private final Object lower;
+    private final boolean lowerInclusive;
+    private final Object upper;
+    private final boolean upperInclusive;
+
+    private Range(String key, Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+      this.key = key;
+      this.lower = lower;
+      this.lowerInclusive = lowerInclusive;
+      this.upper = upper;
+      this.upperInclusive = upperInclusive;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public boolean matches(Element element) {
+      Object v = element.getProperty(key);
+      if (v == null) {
+        return false;
+      }
+      if (lower != null) {
+        Integer c = compare(v, lower);
+        if (c == null || c < 0 || (c == 0 && !lowerInclusive)) {
+          return false;
+        }
+      }
+      if (upper != null) {
+        Integer c = compare(v, upper);
+        if (c == null || c > 0 || (c == 0 && !upperInclusive)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return key + " in " + (lowerInclusive ? "[" : "(") + (lower == null ? "" : lower) + ", "
+          + (upper == null ? "" : upper) + (upperInclusive ? "]" : ")");
+    }
+  }
+
+  /**
+   * Matches elements whose property starts with the prefix.
+   */
+  public static final class Prefix extends Query {
+    private final String key;
+    private final String prefix;
+
+    private Prefix(String key, String prefix) {
+      this.key = key;
+      this.prefix = prefix;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getPrefix() {
+      return prefix;
+    }
+
+    @Override
+    public boolean matches(Element element) {
+      Object v = element.getProperty(key);
+      return v != null && v.toString().startsWith(prefix);
+    }
+
+    @Override
+    public String toString() {
+      return key + " = " + prefix + "*";
+    }
+  }
+
+  /**
+   * Matches elements that match all queries.
+   */
+  public static final class And extends Query {
+    private final List<Query> queries;
+
+    private And(List<Query> queries) {
+      this.queries = Collections.unmodifiableList(new ArrayList<Query>(queries));
+    }
+
+    public List<Query> getQueries() {
+      return queries;
+    }
+
+    @Override
+    public boolean matches(Element element) {
+      for (Query q : queries) {
+        if (!q.matches(element)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return join(queries, " and ");
+    }
+  }
+
+  /**
+   * Matches elements that match any of the queries.
+   */
+  public static final class Or extends Query {
+    private final List<Query> queries;
+
+    private Or(List<Query> queries) {
+      this.queries = Collections.unmodifiableList(new ArrayList<Query>(queries));
+    }
+
+    public List<Query> getQueries() {
+      return queries;
+    }
+
+    @Override
+    public boolean matches(Element element) {
+      for (Query q : queries) {
+        if (q.matches(element)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return join(queries, " or ");
+    }
+  }
+
+  private static String join(List<Query> queries, String separator) {
+    StringBuilder sb = new StringBuilder("(");
+    for (Query q : queries) {
+      if (sb.length() > 1) {
+        sb.append(separator);
+      }
+      sb.append(q);
+    }
+    return sb.append(")").toString();
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the text form of a {@link Query}.
+ * <p/>
+ * A query consists of comparisons {@code key op value} with one of the
+ * operators {@code = < <= > >=}, combined with {@code and} and {@code or}
+ * (or {@code &&} and {@code ||}) and grouped by parentheses. {@code and}
+ * binds stronger than {@code or}. An unquoted value ending in {@code *}
+ * is a prefix. Unquoted values are read as numbers or booleans if
+ * possible; values in double quotes are always strings. Example:
+ * <pre>
+ *   age >= 30 and age <= 40 and (type = customer or name = Jo*)
+ * </pre>
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 11:50
+ */
+public final class QueryParser {
+
+  private final String text;
+  private int pos;
+
+  private QueryParser(String text) {
+    this.text = text;
+  }
+
+  /**
+   * Parses the given text.
+   *
+   * @param text
+   * @return
+   * @throws IllegalArgumentException if the text is not a valid query
+   */
+  public static Query parse(String text) {
+    QueryParser parser = new QueryParser(text);
+    Query query = parser.parseOr();
+    parser.skipWhitespace();
+    if (parser.pos < text.length()) {
+      throw parser.error("Unexpected '" + text.substring(parser.pos) + "'");
+    }
+    return query;
+  }
+
+  private Query parseOr() {
+    List<Query> queries = new ArrayList<Query>();
+    queries.add(parseAnd());
+    while (acceptKeyword("or", "||")) {
+      queries.add(parseAnd());
+    }
+    return Query.or(queries);
+  }
+
+  private Query parseAnd() {
+    List<Query> queries = new ArrayList<Query>();
+    queries.add(parseTerm());
+    while (acceptKeyword("and", "&&")) {
+      queries.add(parseTerm());
+    }
+    return Query.and(queries);
+  }
+
+  private Query parseTerm() {
+    skipWhitespace();
+    if (accept('(')) {
+      Query query = parseOr();
+      skipWhitespace();
+      if (!accept(')')) {
+        throw error("Missing ')'");
+      }
+      return query;
+    }
+    String key = readWord();
+    if (key.isEmpty()) {
+      throw error("Expected a property key");
+    }
+    skipWhitespace();
+    String op = readOperator();
+    skipWhitespace();
+    boolean quoted = pos < text.length() && text.charAt(pos) == '"';
+    String raw = quoted ? readQuoted() : readWord();
+    if (!quoted && raw.isEmpty()) {
+      throw error("Expected a value for '" + key + "'");
+    }
+    if (!quoted && raw.endsWith("*")) {
+      if (!op.equals("=")) {
+        throw error("A prefix can only be used with '='");
+      }
+      return Query.prefix(key, raw.substring(0, raw.length() - 1));
+    }
+    Object value = quoted ? raw : literal(raw);
+    if (op.equals("=")) {
+      return Query.eq(key, value);
+    }
+    if (op.equals("<")) {
+      return Query.range(key, null, false, value, false);
+    }
+    if (op.equals("<=")) {
+      return Query.range(key, null, false, value, true);
+    }
+    if (op.equals(">")) {
+      return Query.range(key, value, false, null, false);
+    }
+    return Query.range(key, value, true, null, false);
+  }
+
+  private static Object literal(String raw) {
+    if (raw.equals("true") || raw.equals("false")) {
+      return Boolean.valueOf(raw);
+    }
+    char c = raw.charAt(0);
+    if (Character.isDigit(c) || c == '-' || c == '.') {
+      try {
+        return Long.parseLong(raw);
+      } catch (NumberFormatException e) {
+        // not a long
+      }
+      try {
+        return Double.parseDouble(raw);
+      } catch (NumberFormatException e) {
+        // not a number
+      }
+    }
+    return raw;
+  }
+
+  private boolean acceptKeyword(String word, String symbol) {
+    skipWhitespace();
+    if (text.startsWith(symbol, pos)) {
+      pos += symbol.length();
+      return true;
+    }
+    int end = pos + word.length();
+    if (text.regionMatches(true, pos, word, 0, word.length())
+        && (end == text.length() || !isWordChar(text.charAt(end)))) {
+      pos = end;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean accept(char c) {
+    if (pos < text.length() && text.charAt(pos) == c) {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  private String readOperator() {
+    if (accept('=')) {
+      return "=";
+    }
+    if (accept('<')) {
+      return accept('=') ? "<=" : "<";
+    }
+    if (accept('>')) {
+      return accept('=') ? ">=" : ">";
+    }
+    throw error("Expected one of = < <= > >=");
+  }
+
+  private String readWord() {
+    int start = pos;
+    while (pos < text.length() && isWordChar(text.charAt(pos))) {
+      pos++;
+    }
+    return text.substring(start, pos);
+  }
+
+  private String readQuoted() {
+    pos++;
+    StringBuilder sb = new StringBuilder();
+    while (pos < text.length()) {
+      char c = text.charAt(pos++);
+      if (c == '\\' && pos < text.length()) {
+        sb.append(text.charAt(pos++));
+      } else if (c == '"') {
+        return sb.toString();
+      } else {
+        sb.append(c);
+      }
+    }
+    throw error("Missing '\"'");
+  }
+
+  private void skipWhitespace() {
+    while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private static boolean isWordChar(char c) {
+    return !Character.isWhitespace(c) && "()=<>\"&|".indexOf(c) < 0;
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " at position " + (pos + 1));
+  }
+}
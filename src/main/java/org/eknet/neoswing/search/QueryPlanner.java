@@ -0,0 +1,376 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.search;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Graph;
+import com.tinkerpop.blueprints.KeyIndexableGraph;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphDb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Decides how a {@link Query} is executed.
+ * <p/>
+ * A comparison can be answered by an index if the backend has a key index
+ * for its property (exact string and boolean values only) or if the
+ * {@link PropertyIndex} is complete and the value is a string with words. Of the
+ * parts of a conjunction, the one with the fewest estimated candidates is
+ * read from its index; a disjunction needs an index for every part. All
+ * candidates are then checked against the complete query while they are
+ * read, so results are streamed and nothing is collected up front. If no
+ * index can be used, all elements are scanned.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 12:30
+ */
+public final class QueryPlanner {
+
+  /**
+   * The estimate for a backend index lookup, which cannot be counted in
+   * advance: worse than any counted index, better than a scan.
+   */
+  private static final long unknownEstimate = Long.MAX_VALUE / 2;
+
+  private final GraphDb db;
+
+  public QueryPlanner(GraphDb db) {
+    this.db = db;
+  }
+
+  /**
+   * Creates the plan for the given query. This should be done once per
+   * search, so that all pages of the result are read the same way.
+   *
+   * @param query
+   * @param type {@link Vertex} or {@link Edge}
+   * @return
+   */
+  public Plan plan(Query query, Class<? extends Element> type) {
+    return new Plan(query, type, source(query, type));
+  }
+
+  private Source source(Query query, Class<? extends Element> type) {
+    if (query instanceof Query.Eq) {
+      Query.Eq eq = (Query.Eq) query;
+      Source best = null;
+      if ((eq.getValue() instanceof String || eq.getValue() instanceof Boolean) && isKeyIndexed(eq.getKey(), type)) {
+        best = new KeySource(eq.getKey(), eq.getValue(), type);
+      }
+      // numbers are tokenized differently depending on their type, 30.0 is not
+      // found as 30, so only strings are looked up in the full text index
+      if (eq.getValue() instanceof String) {
+        best = cheaper(best, textSource(eq.getKey(), (String) eq.getValue(), type));
+      }
+      return best;
+    }
+    if (query instanceof Query.Prefix) {
+      Query.Prefix prefix = (Query.Prefix) query;
+      return textSource(prefix.getKey(), prefix.getPrefix() + " *", type);
+    }
+    if (query instanceof Query.And) {
+      Source best = null;
+      for (Query q : ((Query.And) query).getQueries()) {
+        best = cheaper(best, source(q, type));
+      }
+      return best;
+    }
+    if (query instanceof Query.Or) {
+      List<Source> sources = new ArrayList<Source>();
+      for (Query q : ((Query.Or) query).getQueries()) {
+        Source s = source(q, type);
+        if (s == null) {
+          return null;
+        }
+        sources.add(s);
+      }
+      return new UnionSource(sources);
+    }
+    return null;
+  }
+
+  private Source textSource(String key, String text, Class<? extends Element> type) {
+    PropertyIndex index = db.getPropertyIndex();
+    if (!index.isLoaded() || !index.isComplete()) {
+      return null;
+    }
+    long estimate = index.estimate(text);
+    return estimate < 0 ? null : new TextSource(key, text, type, estimate);
+  }
+
+  private boolean isKeyIndexed(String key, Class<? extends Element> type) {
+    Graph graph = db.getDelegate();
+    return graph instanceof KeyIndexableGraph && ((KeyIndexableGraph) graph).getIndexedKeys(type).contains(key);
+  }
+
+  private static Source cheaper(Source a, Source b) {
+    if (a == null) {
+      return b;
+    }
+    if (b == null) {
+      return a;
+    }
+    return b.estimate < a.estimate ? b : a;
+  }
+
+  /**
+   * An executable query.
+   */
+  public static final class Plan {
+    private final Query query;
+    private final Class<? extends Element> type;
+    private final Source source;
+
+    private Plan(Query query, Class<? extends Element> type, Source source) {
+      this.query = query;
+      this.type = type;
+      this.source = source;
+    }
+
+    public Query getQuery() {
+      return query;
+    }
+
+    /**
+     * Whether the plan reads all elements, because no index can be used.
+     *
+     * @return
+     */
+    public boolean isFullScan() {
+      return source == null;
+    }
+
+    /**
+     * Returns the matching elements. They are read and checked while
+     * iterating, which must happen inside a transaction.
+     *
+     * @param db
+     * @return
+     */
+    public Iterable<Element> execute(final GraphDb db) {
+      final Iterable<? extends Element> candidates = source != null
+          ? source.open(db)
+          : (type == Vertex.class ? db.getVertices() : db.getEdges());
+      return new Iterable<Element>() {
+        @Override
+        public Iterator<Element> iterator() {
+          return new FilterIterator(candidates.iterator(), query);
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return (source == null ? "scan all" : source.toString()) + ", filter " + query;
+    }
+  }
+
+  private abstract static class Source {
+    final long estimate;
+
+    private Source(long estimate) {
+      this.estimate = estimate;
+    }
+
+    abstract Iterable<? extends Element> open(GraphDb db);
+  }
+
+  private static final class KeySource extends Source {
+    private final String key;
+    private final Object value;
+    private final Class<? extends Element> type;
+
+    private KeySource(String key, Object value, Class<? extends Element> type) {
+      super(unknownEstimate);
+      this.key = key;
+      this.value = value;
+      this.type = type;
+    }
+
+    @Override
+    Iterable<? extends Element> open(GraphDb db) {
+      return type == Vertex.class ? db.getVertices(key, value) : db.getEdges(key, value);
+    }
+
+    @Override
+    public String toString() {
+      return "key index " + key + " = " + value;
+    }
+  }
+
+  private static final class TextSource extends Source {
+    private final String key;
+    private final String text;
+    private final Class<? extends Element> type;
+
+    private TextSource(String key, String text, Class<? extends Element> type, long estimate) {
+      super(estimate);
+      this.key = key;
+      this.text = text;
+      this.type = type;
+    }
+
+    @Override
+    Iterable<? extends Element> open(final GraphDb db) {
+      final Set<ElementId<?>> ids = db.getPropertyIndex().search(key, text, type, Integer.MAX_VALUE);
+      return new Iterable<Element>() {
+        @Override
+        public Iterator<Element> iterator() {
+          final Iterator<ElementId<?>> iter = ids.iterator();
+          return new LookaheadIterator() {
+            @Override
+            protected Element fetch() {
+              while (iter.hasNext()) {
+                Element el = db.lookup(iter.next());
+                if (el != null) {
+                  return el;
+                }
+              }
+              return null;
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "property index " + key + " ~ '" + text + "' (~" + estimate + ")";
+    }
+  }
+
+  private static final class UnionSource extends Source {
+    private final List<Source> sources;
+
+    private UnionSource(List<Source> sources) {
+      super(sum(sources));
+      this.sources = sources;
+    }
+
+    private static long sum(List<Source> sources) {
+      long sum = 0;
+      for (Source s : sources) {
+        sum = Math.min(unknownEstimate, sum + s.estimate);
+      }
+      return sum;
+    }
+
+    @Override
+    Iterable<? extends Element> open(final GraphDb db) {
+      return new Iterable<Element>() {
+        @Override
+        public Iterator<Element> iterator() {
+          final Iterator<Source> next = sources.iterator();
+          final Set<ElementId<?>> seen = new HashSet<ElementId<?>>();
+          return new LookaheadIterator() {
+            private Iterator<? extends Element> current = Collections.<Element>emptyList().iterator();
+
+            @Override
+            protected Element fetch() {
+              while (true) {
+                while (current.hasNext()) {
+                  Element el = current.next();
+                  if (seen.add(idOf(el))) {
+                    return el;
+                  }
+                }
+                if (!next.hasNext()) {
+                  return null;
+                }
+                current = next.next().open(db).iterator();
+              }
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "union of " + sources;
+    }
+  }
+
+  private static ElementId<?> idOf(Element el) {
+    return el instanceof Vertex
+        ? ElementId.vertexId((Vertex) el)
+        : ElementId.edgeId((Edge) el);
+  }
+
+  private static final class FilterIterator extends LookaheadIterator {
+    private final Iterator<? extends Element> candidates;
+    private final Query query;
+
+    private FilterIterator(Iterator<? extends Element> candidates, Query query) {
+      this.candidates = candidates;
+      this.query = query;
+    }
+
+    @Override
+    protected Element fetch() {
+      while (candidates.hasNext()) {
+        Element el = candidates.next();
+        if (query.matches(el)) {
+          return el;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * An iterator over the elements returned by {@link #fetch()} until it
+   * returns {@code null}.
+   */
+  private abstract static class LookaheadIterator implements Iterator<Element> {
+    private Element next;
+
+    protected abstract Element fetch();
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = fetch();
+      }
+      return next != null;
+    }
+
+    @Override
+    public Element next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Element el = next;
+      next = null;
+      return el;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
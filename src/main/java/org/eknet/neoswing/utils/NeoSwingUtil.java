@@ -16,13 +16,7 @@
 
 package org.eknet.neoswing.utils;
 
-import com.tinkerpop.blueprints.Direction;
-import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Element;
-import com.tinkerpop.blueprints.Vertex;
-import com.tinkerpop.blueprints.util.ElementHelper;
-import edu.uci.ics.jung.graph.Graph;
-import edu.uci.ics.jung.graph.util.EdgeType;
 import org.eknet.neoswing.ComponentFactory;
 import org.eknet.neoswing.DefaultComponentFactory;
 import org.eknet.neoswing.ElementId;
@@ -38,6 +32,7 @@ import org.slf4j.LoggerFactory;
 import javax.swing.Action;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
+import javax.swing.JComponent;
 import javax.swing.JFileChooser;
 import javax.swing.border.Border;
 import java.awt.Component;
@@ -184,21 +179,6 @@ public final class NeoSwingUtil {
     return new ImageIcon(url);
   }
 
-  public static void addEdge(final Graph<Vertex, Edge> graph, final Edge relationship) {
-    if (!graph.containsEdge(relationship)) {
-      EdtExecutor.instance.execute(new Runnable() {
-        @Override
-        public void run() {
-          graph.addEdge(relationship,
-              relationship.getVertex(Direction.OUT),
-              relationship.getVertex(Direction.IN),
-              EdgeType.DIRECTED);
-        }
-      });
-    }
-  }
-
-
   public static Border topEtchBorder() {
     return new Border() {
       @Override
@@ -270,26 +250,11 @@ public final class NeoSwingUtil {
     return pc1.equals(pc2);
   }
 
-  /**
-   * Copies the vertices and edges from new JUNG graph view into the given blueprints graph.
-   * Note that this must be called inside a transaction.
-   * @param view
-   * @return
-   */
-  public static void copyView(Graph<Vertex, Edge> view, com.tinkerpop.blueprints.Graph to) {
-    for (Vertex v : view.getVertices()) {
-      Vertex tv = to.addVertex(v.getId());
-      ElementHelper.copyProperties(v, tv);
-    }
-    for (final Edge fromEdge : view.getEdges()) {
-      final Vertex outVertex = to.getVertex(fromEdge.getVertex(Direction.OUT).getId());
-      final Vertex inVertex = to.getVertex(fromEdge.getVertex(Direction.IN).getId());
-      final Edge toEdge = to.addEdge(fromEdge.getId(), outVertex, inVertex, fromEdge.getLabel());
-      ElementHelper.copyProperties(fromEdge, toEdge);
-    }
+  public static <B> B chooseSingleFile(Object ownerComp, String title, Function<File, B> fun) {
+    return chooseSingleFile(ownerComp, title, null, fun);
   }
 
-  public static <B> B chooseSingleFile(Object ownerComp, String title, Function<File, B> fun) {
+  public static <B> B chooseSingleFile(Object ownerComp, String title, JComponent accessory, Function<File, B> fun) {
     final String key = "neoswing." + title.replaceAll("\\s+", "") + ".lastlocation";
     String lastLocation = prefs.get(key, null);
     JFileChooser fc = new JFileChooser(lastLocation);
@@ -297,6 +262,9 @@ public final class NeoSwingUtil {
     fc.setAcceptAllFileFilterUsed(false);
     fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
     fc.setMultiSelectionEnabled(false);
+    if (accessory != null) {
+      fc.setAccessory(accessory);
+    }
     Window owner = findOwner(ownerComp);
     int rc = fc.showOpenDialog(owner);
     if (rc == JFileChooser.APPROVE_OPTION) {
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.utils;
+
+import org.eknet.neoswing.ComponentFactory;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.Timer;
+import java.awt.BorderLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * A modeless progress dialog with a cancel button. Unlike a
+ * {@link javax.swing.ProgressMonitor}, it is also shown for work of
+ * unknown length: the progress bar is indeterminate until
+ * {@link #setProgress(int)} is called. The dialog pops up after a short
+ * delay, so that it is not shown for work that finishes quickly.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 16:30
+ */
+public class ProgressDialog {
+
+  private final Window owner;
+  private final Dialog dialog;
+  private final JLabel note;
+  private final JProgressBar bar = new JProgressBar(0, 100);
+  private final Timer popupTimer;
+  private ActionListener cancelListener;
+
+  private boolean closed;
+  private boolean canceled;
+
+  /**
+   * Creates a new dialog.
+   *
+   * @param owner
+   * @param title the title, which is also used to remember the dialog bounds
+   * @param message
+   */
+  public ProgressDialog(Window owner, String title, String message) {
+    this.owner = owner;
+    ComponentFactory factory = NeoSwingUtil.getFactory(true);
+    JPanel panel = factory.createPanel();
+    panel.setLayout(new BorderLayout(5, 5));
+    JLabel label = factory.createLabel();
+    label.setText(message);
+    panel.add(label, BorderLayout.NORTH);
+    bar.setIndeterminate(true);
+    panel.add(bar, BorderLayout.CENTER);
+    note = factory.createLabel();
+    panel.add(note, BorderLayout.SOUTH);
+
+    dialog = new Dialog(title);
+    dialog.setContent(panel);
+    dialog.setShowOkOption(false);
+
+    popupTimer = new Timer(500, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        popup();
+      }
+    });
+    popupTimer.setRepeats(false);
+  }
+
+  /**
+   * Sets the listener that is called on the EDT if the user cancels.
+   *
+   * @param cancelListener
+   */
+  public void setCancelListener(ActionListener cancelListener) {
+    this.cancelListener = cancelListener;
+  }
+
+  public void setMillisToPopup(int millis) {
+    popupTimer.setInitialDelay(millis);
+  }
+
+  /**
+   * Shows the dialog after the delay, unless it has been closed before.
+   */
+  public void start() {
+    popupTimer.start();
+  }
+
+  private void popup() {
+    if (closed) {
+      return;
+    }
+    dialog.show(owner, java.awt.Dialog.ModalityType.MODELESS);
+    dialog.getJdialog().addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosed(WindowEvent e) {
+        if (!closed) {
+          cancel();
+        }
+      }
+    });
+  }
+
+  private void cancel() {
+    closed = true;
+    canceled = true;
+    if (cancelListener != null) {
+      cancelListener.actionPerformed(new ActionEvent(this, ActionEvent.ACTION_PERFORMED, "cancel"));
+    }
+  }
+
+  public void setNote(String text) {
+    note.setText(text);
+  }
+
+  /**
+   * Sets the progress in percent and makes the progress bar determinate.
+   *
+   * @param percent
+   */
+  public void setProgress(int percent) {
+    bar.setIndeterminate(false);
+    bar.setValue(percent);
+  }
+
+  public boolean isCanceled() {
+    return canceled;
+  }
+
+  public void close() {
+    closed = true;
+    popupTimer.stop();
+    if (dialog.getJdialog() != null) {
+      dialog.getJdialog().setVisible(false);
+      dialog.getJdialog().dispose();
+    }
+  }
+}
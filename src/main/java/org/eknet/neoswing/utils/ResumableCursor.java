@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.utils;
+
+import org.eknet.neoswing.GraphDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads elements page by page, where each page is usually read in another
+ * transaction.
+ * <p/>
+ * The iterator of the previous page is kept and continued, so that a page
+ * costs only as much as its own elements. Backends that bind iterators to
+ * a transaction may reject the old iterator; in that case a new one is
+ * obtained from the source and the elements already read are skipped.
+ * <p/>
+ * Instances are not thread safe, pages must be read one after the other.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 14:10
+ */
+public final class ResumableCursor<T> {
+  private static final Logger log = LoggerFactory.getLogger(ResumableCursor.class);
+
+  private final Function<GraphDb, Iterable<T>> source;
+
+  private Iterator<T> iterator;
+  private long position = 0;
+  private boolean exhausted = false;
+
+  public ResumableCursor(Function<GraphDb, Iterable<T>> source) {
+    this.source = source;
+  }
+
+  /**
+   * Reads the next page. Must be called inside a transaction.
+   *
+   * @param db
+   * @param max the maximum number of elements to read
+   * @return the next elements, empty if there are no more
+   */
+  public List<T> next(GraphDb db, int max) {
+    List<T> page = new ArrayList<T>(Math.min(max, 1024));
+    if (exhausted) {
+      return page;
+    }
+    if (iterator == null) {
+      iterator = open(db);
+    }
+    try {
+      fill(page, max);
+    } catch (RuntimeException e) {
+      log.debug("Cursor invalidated at position " + position + ", reopening", e);
+      page.clear();
+      iterator = open(db);
+      fill(page, max);
+    }
+    position += page.size();
+    exhausted = !iterator.hasNext();
+    if (exhausted) {
+      iterator = null;
+    }
+    return page;
+  }
+
+  /**
+   * The number of elements read so far.
+   *
+   * @return
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  public boolean hasMore() {
+    return !exhausted;
+  }
+
+  private void fill(List<T> page, int max) {
+    while (page.size() < max && iterator.hasNext()) {
+      page.add(iterator.next());
+    }
+  }
+
+  private Iterator<T> open(GraphDb db) {
+    Iterator<T> iter = source.apply(db).iterator();
+    for (long i = 0; i < position && iter.hasNext(); i++) {
+      iter.next();
+    }
+    return iter;
+  }
+}
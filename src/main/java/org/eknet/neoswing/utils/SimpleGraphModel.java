@@ -19,12 +19,16 @@ package org.eknet.neoswing.utils;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
 import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import edu.uci.ics.jung.algorithms.layout.util.Relaxer;
 import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.visualization.VisualizationModel;
 import edu.uci.ics.jung.visualization.VisualizationViewer;
 import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
 import org.eknet.neoswing.VisualizationViewFactory;
+import org.eknet.neoswing.layout.IncrementalLayout;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
@@ -35,6 +39,7 @@ public class SimpleGraphModel implements GraphModel {
   private Graph<Vertex, Edge> graph;
   private VisualizationViewer<Vertex, Edge> viewer;
   private GraphDb database;
+  private volatile boolean containsDetached = false;
 
   public SimpleGraphModel(Graph<Vertex, Edge> graph, VisualizationViewer<Vertex, Edge> viewer, GraphDb database) {
     this.graph = graph;
@@ -78,6 +83,41 @@ public class SimpleGraphModel implements GraphModel {
   @Override
   public <A, B> void execute(DbAction<A, B> action) {
     action.setModel(this);
-    action.execute();
+    database.getScheduler().execute(action);
+  }
+
+  @Override
+  public void setContainsDetached() {
+    this.containsDetached = true;
+  }
+
+  @Override
+  public void applyBatch(final GraphBatch batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    EdtExecutor.instance.execute(new Runnable() {
+      @Override
+      public void run() {
+        VisualizationModel<Vertex, Edge> model = viewer.getModel();
+        Relaxer relaxer = model.getRelaxer();
+        if (relaxer != null) {
+          relaxer.pause();
+        }
+        try {
+          batch.applyTo(graph, database, containsDetached);
+        } finally {
+          if (relaxer != null) {
+            relaxer.resume();
+          }
+        }
+        // an incremental layout has finished and must be restarted to place the new vertices
+        IncrementalLayout<Vertex, Edge> incremental = IncrementalLayout.find(model.getGraphLayout());
+        if (relaxer != null && incremental != null && !incremental.done()) {
+          relaxer.relax();
+        }
+        model.fireStateChanged();
+      }
+    });
   }
 }
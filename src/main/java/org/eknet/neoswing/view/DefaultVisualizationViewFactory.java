@@ -33,8 +33,6 @@ import org.eknet.neoswing.utils.NeoSwingUtil;
 import org.eknet.neoswing.utils.SimpleGraphModel;
 import org.eknet.neoswing.view.control.NavigateNodeMousePlugin;
 import org.eknet.neoswing.view.control.NodePopupMenu;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.awt.Color;
 import java.awt.Paint;
@@ -42,15 +40,12 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.event.MouseEvent;
 import java.awt.geom.RoundRectangle2D;
-import java.util.WeakHashMap;
 
 /**
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 10.01.12 18:38
  */
 public class DefaultVisualizationViewFactory implements VisualizationViewFactory {
-  private static final Logger log = LoggerFactory.getLogger(DefaultVisualizationViewFactory.class);
-
   private final static String labelKeyFormat = "defaultlabel.%s.%s.%s";
 
   public static String createDefaultLabelPrefKey(Element container, GraphDb db) {
@@ -68,6 +63,8 @@ public class DefaultVisualizationViewFactory implements VisualizationViewFactory
     final VisualizationViewer<Vertex, Edge> vv =
         new VisualizationViewer<Vertex, Edge>(new FRLayout2<Vertex, Edge>(graph));
     vv.getModel().getRelaxer().setSleepTime(0);
+    vv.setPickSupport(new SpatialPickSupport<Vertex, Edge>(vv));
+    vv.setRenderer(new LevelOfDetailRenderer<Vertex, Edge>());
     DefaultModalGraphMouse<Vertex, Edge> mouseSupport = new DefaultModalGraphMouse<Vertex,Edge>();
     final GraphModel model = new SimpleGraphModel(graph, vv, db);
     addMousePlugins(mouseSupport, model);
@@ -86,7 +83,8 @@ public class DefaultVisualizationViewFactory implements VisualizationViewFactory
     vertexShape.setPosition(Renderer.VertexLabel.Position.CNTR);
     vv.setBackground(Color.WHITE);
     vv.getRenderContext().setVertexShapeTransformer(vertexShape);
-    vv.getRenderContext().setVertexLabelTransformer(new VertexTransformer(model));
+    final LabelService labels = new LabelService(model);
+    vv.getRenderContext().setVertexLabelTransformer(new VertexTransformer(labels));
     vv.getRenderer().setVertexLabelRenderer(vertexShape);
     vv.getRenderContext().setVertexFillPaintTransformer(new Transformer<Vertex, Paint>() {
       private Color nodefill = Color.getHSBColor(207, 19, 97);
@@ -101,27 +99,9 @@ public class DefaultVisualizationViewFactory implements VisualizationViewFactory
     });
 
     vv.getRenderContext().setEdgeLabelTransformer(new Transformer<Edge, String>() {
-
-      private final WeakHashMap<Object, String> cache = new WeakHashMap<Object, String>();
-
       @Override
-      public String transform(final Edge e) {
-        String s = cache.get(e.getId());
-        if (s == null) {
-          s = "<null>";
-          GraphDb.Tx tx = model.getDatabase().beginTx();
-          try {
-            Edge edge = model.getDatabase().lookupEdge(e.getId());
-            s = edge.getLabel();
-            tx.success();
-            cache.put(edge.getId(), s);
-          } catch (Exception e1) {
-            log.error("Error obtaining edge label", e1);
-          } finally {
-            tx.finish();
-          }
-        }
-        return s;
+      public String transform(Edge e) {
+        return labels.getLabel(e);
       }
     });
 
@@ -134,38 +114,15 @@ public class DefaultVisualizationViewFactory implements VisualizationViewFactory
   }
 
   static class VertexTransformer implements Transformer<Vertex, String> {
-    private final GraphModel model;
-    private final WeakHashMap<Object, String> cache = new WeakHashMap<Object, String>();
+    private final LabelService labels;
 
-    VertexTransformer(GraphModel model) {
-      this.model = model;
+    VertexTransformer(LabelService labels) {
+      this.labels = labels;
     }
 
     @Override
-    public synchronized String transform(final Vertex vertex) {
-      String s = cache.get(vertex.getId());
-      if (s == null) {
-        s = "<null>";
-        GraphDb.Tx tx = model.getDatabase().beginTx();
-        try {
-          Vertex v = model.getDatabase().lookupVertex(vertex.getId());
-          final String key = createDefaultLabelPrefKey(v, model.getDatabase());
-          String label = NeoSwingUtil.getPrefs().get(key, null);
-          if (label != null && v.getProperty(label) != null) {
-            s = v.getId() + ": " + v.getProperty(label).toString();
-            cache.put(vertex.getId(), s);
-          } else  if (v.getProperty("name") != null) {
-            s = v.getId() + ": " + v.getProperty("name");
-            cache.put(vertex.getId(), s);
-          } else {
-            s = v.toString();
-          }
-          tx.success();
-        } finally {
-          tx.finish();
-        }
-      }
-      return s;
+    public String transform(Vertex vertex) {
+      return labels.getLabel(vertex);
     }
   }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.view;
+
+import com.tinkerpop.blueprints.Direction;
+import org.eknet.neoswing.ComponentFactory;
+
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Asks for the parameters of a k-hop expansion: the number of hops, the
+ * direction, the maximum number of edges to follow per vertex and hop and
+ * the edge labels to follow.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 14:30
+ */
+public class ExpandHopsPanel extends JPanel {
+
+  private final JSpinner hopsSpinner;
+  private final JSpinner fanOutSpinner;
+  private final JComboBox directionCombo;
+  private final JList labelList;
+
+  public ExpandHopsPanel(ComponentFactory factory, Collection<String> labels, int hops, int fanOut) {
+    super(new BorderLayout(5, 5), true);
+
+    JPanel fields = factory.createPanel();
+    fields.setLayout(new GridLayout(3, 2, 5, 5));
+    fields.add(new JLabel("Hops"));
+    hopsSpinner = new JSpinner(new SpinnerNumberModel(hops, 1, 10, 1));
+    fields.add(hopsSpinner);
+    fields.add(new JLabel("Direction"));
+    directionCombo = factory.createComboBox(Direction.values(), true, false);
+    directionCombo.setSelectedItem(Direction.BOTH);
+    fields.add(directionCombo);
+    fields.add(new JLabel("Edges per node and hop"));
+    fanOutSpinner = new JSpinner(new SpinnerNumberModel(fanOut, 1, Integer.MAX_VALUE, 10));
+    fields.add(fanOutSpinner);
+    add(fields, BorderLayout.NORTH);
+
+    labelList = new JList(new TreeSet<String>(labels).toArray());
+    JScrollPane scrollPane = new JScrollPane(labelList);
+    scrollPane.setPreferredSize(new Dimension(300, 150));
+    JPanel labelPanel = factory.createPanel();
+    labelPanel.setLayout(new BorderLayout(5, 5));
+    labelPanel.add(new JLabel("Follow edges with labels (none selected: all)"), BorderLayout.NORTH);
+    labelPanel.add(scrollPane, BorderLayout.CENTER);
+    add(labelPanel, BorderLayout.CENTER);
+  }
+
+  public int getHops() {
+    return ((Number) hopsSpinner.getValue()).intValue();
+  }
+
+  public int getFanOut() {
+    return ((Number) fanOutSpinner.getValue()).intValue();
+  }
+
+  public Direction getDirection() {
+    return (Direction) directionCombo.getSelectedItem();
+  }
+
+  /**
+   * Returns the selected labels or an empty array to follow all edges.
+   *
+   * @return
+   */
+  public String[] getSelectedLabels() {
+    List<String> labels = new ArrayList<String>();
+    for (Object value : labelList.getSelectedValues()) {
+      labels.add((String) value);
+    }
+    return labels.toArray(new String[labels.size()]);
+  }
+}
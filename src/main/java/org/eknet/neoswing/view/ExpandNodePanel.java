@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.view;
+
+import org.eknet.neoswing.ComponentFactory;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JTable;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.table.AbstractTableModel;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows the number of edges per label of a node that is about to be
+ * expanded. The user can choose the labels to expand and how many
+ * edges to fetch at most.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 14:35
+ */
+public class ExpandNodePanel extends JPanel {
+
+  private final DegreeTableModel tableModel;
+  private final JSpinner limitSpinner;
+
+  public ExpandNodePanel(ComponentFactory factory, Map<String, Long> degrees, int limit) {
+    super(new BorderLayout(5, 5), true);
+    this.tableModel = new DegreeTableModel(degrees);
+
+    long total = 0;
+    for (Long count : degrees.values()) {
+      total += count;
+    }
+    JPanel head = factory.createPanel();
+    head.setLayout(new FlowLayout(FlowLayout.LEADING));
+    head.add(new JLabel("The node has " + total + " edges. Choose the labels to expand."));
+    add(head, BorderLayout.NORTH);
+
+    JTable table = factory.createTable();
+    table.setModel(tableModel);
+    table.getColumnModel().getColumn(0).setMaxWidth(60);
+    JScrollPane scrollPane = new JScrollPane(table);
+    scrollPane.setPreferredSize(new Dimension(300, 180));
+    add(scrollPane, BorderLayout.CENTER);
+
+    JPanel bottom = factory.createPanel();
+    bottom.setLayout(new FlowLayout(FlowLayout.LEADING));
+    bottom.add(new JLabel("Edges to fetch"));
+    limitSpinner = new JSpinner(new SpinnerNumberModel(limit, 1, Integer.MAX_VALUE, 50));
+    bottom.add(limitSpinner);
+    add(bottom, BorderLayout.SOUTH);
+  }
+
+  public int getLimit() {
+    return ((Number) limitSpinner.getValue()).intValue();
+  }
+
+  /**
+   * Returns the selected labels or an empty array, if all labels
+   * are selected.
+   *
+   * @return
+   */
+  public String[] getSelectedLabels() {
+    List<String> labels = new ArrayList<String>();
+    for (Row row : tableModel.rows) {
+      if (row.selected) {
+        labels.add(row.label);
+      }
+    }
+    if (labels.size() == tableModel.rows.size()) {
+      return new String[0];
+    }
+    return labels.toArray(new String[labels.size()]);
+  }
+
+  private static final class DegreeTableModel extends AbstractTableModel {
+
+    private final String[] cols = new String[]{"Expand", "Label", "Edges"};
+    private final List<Row> rows = new ArrayList<Row>();
+
+    private DegreeTableModel(Map<String, Long> degrees) {
+      for (Map.Entry<String, Long> entry : degrees.entrySet()) {
+        rows.add(new Row(entry.getKey(), entry.getValue()));
+      }
+    }
+
+    @Override
+    public int getRowCount() {
+      return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return cols.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return cols[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+      if (columnIndex == 0) {
+        return Boolean.class;
+      }
+      if (columnIndex == 2) {
+        return Long.class;
+      }
+      return String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+      return columnIndex == 0;
+    }
+
+    @Override
+    public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
+      rows.get(rowIndex).selected = Boolean.TRUE.equals(aValue);
+      fireTableCellUpdated(rowIndex, columnIndex);
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+      Row row = rows.get(rowIndex);
+      if (columnIndex == 0) {
+        return row.selected;
+      }
+      if (columnIndex == 1) {
+        return row.label;
+      }
+      return row.count;
+    }
+  }
+
+  private static final class Row {
+    private final String label;
+    private final long count;
+    private boolean selected = true;
+
+    private Row(String label, long count) {
+      this.label = label;
+      this.count = count;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.view;
+
+import org.eknet.neoswing.utils.NeoSwingUtil;
+
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import java.awt.Component;
+import java.util.prefs.Preferences;
+
+/**
+ * Options for exporting a graph, shown next to the file chooser. The
+ * choices are remembered.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 20:00
+ */
+public class ExportOptionsPanel extends JPanel {
+
+  private static final String gzipKey = "neoswing.export.gzip";
+  private static final String chunkKey = "neoswing.export.chunkmb";
+
+  private final JCheckBox gzipCheckBox;
+  private final JSpinner chunkSpinner;
+
+  public ExportOptionsPanel() {
+    super(true);
+    setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
+    setBorder(BorderFactory.createTitledBorder("Options"));
+    Preferences prefs = NeoSwingUtil.getPrefs();
+
+    gzipCheckBox = new JCheckBox("Compress (gzip)", prefs.getBoolean(gzipKey, false));
+    gzipCheckBox.setAlignmentX(Component.LEFT_ALIGNMENT);
+    add(gzipCheckBox);
+
+    JLabel label = new JLabel("Split into files of MB (0 = no split)");
+    label.setAlignmentX(Component.LEFT_ALIGNMENT);
+    add(label);
+    chunkSpinner = new JSpinner(new SpinnerNumberModel(prefs.getInt(chunkKey, 0), 0, 1024 * 1024, 100));
+    chunkSpinner.setAlignmentX(Component.LEFT_ALIGNMENT);
+    chunkSpinner.setMaximumSize(chunkSpinner.getPreferredSize());
+    add(chunkSpinner);
+  }
+
+  public boolean isCompress() {
+    return gzipCheckBox.isSelected();
+  }
+
+  /**
+   * The maximum size of an output file in bytes or 0 if the output should
+   * not be split.
+   *
+   * @return
+   */
+  public long getChunkSize() {
+    return ((Number) chunkSpinner.getValue()).longValue() * 1024 * 1024;
+  }
+
+  /**
+   * Stores the current choices as defaults for the next export.
+   */
+  public void remember() {
+    Preferences prefs = NeoSwingUtil.getPrefs();
+    prefs.putBoolean(gzipKey, isCompress());
+    prefs.putInt(chunkKey, ((Number) chunkSpinner.getValue()).intValue());
+  }
+}
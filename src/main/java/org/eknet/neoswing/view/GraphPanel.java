@@ -18,11 +18,14 @@ package org.eknet.neoswing.view;
 
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Vertex;
+import edu.uci.ics.jung.algorithms.layout.AbstractLayout;
 import edu.uci.ics.jung.graph.Graph;
 import edu.uci.ics.jung.visualization.GraphZoomScrollPane;
 import edu.uci.ics.jung.visualization.VisualizationViewer;
 import org.eknet.neoswing.ComponentFactory;
 import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.DbScheduler;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
 import org.eknet.neoswing.LayoutComboModel;
@@ -33,6 +36,8 @@ import org.eknet.neoswing.actions.ExportAction;
 import org.eknet.neoswing.actions.ImportAction;
 import org.eknet.neoswing.actions.ResetAction;
 import org.eknet.neoswing.actions.SearchAction;
+import org.eknet.neoswing.actions.ViewSnapshotAction;
+import org.eknet.neoswing.layout.IncrementalLayout;
 import org.eknet.neoswing.utils.NeoSwingUtil;
 import org.eknet.neoswing.utils.SimpleGraphModel;
 
@@ -40,8 +45,11 @@ import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JToolBar;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
@@ -57,7 +65,10 @@ import java.awt.event.ActionListener;
  *   <li>reset the graph</li>
  *   <li>change layout</li>
  *   <li>find nodes/relationships via key-value search</li>
+ *   <li>save and load the view</li>
  * </ul>
+ * The toolbar also shows the number of queued and running jobs of the
+ * {@link DbScheduler}.
  *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 10.01.12 18:31
@@ -101,7 +112,11 @@ public class GraphPanel extends JPanel implements GraphModel {
     box.addActionListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        getViewer().setGraphLayout(layoutModel.getSelectedItem().createLayout(getGraph()));
+        AbstractLayout<Vertex, Edge> layout = layoutModel.getSelectedItem().createLayout(getGraph());
+        if (layout instanceof IncrementalLayout) {
+          ((IncrementalLayout<Vertex, Edge>) layout).seed(getViewer().getGraphLayout());
+        }
+        getViewer().setGraphLayout(layout);
       }
     });
     box.setSelectedItem(Layouts.FRLayout);
@@ -137,6 +152,32 @@ public class GraphPanel extends JPanel implements GraphModel {
     importMl.setAction(new ImportAction(graphModel));
     bar.add(importMl);
 
+    //save and load the view
+    JButton saveView = factory.createToolbarButton();
+    saveView.setAction(new ViewSnapshotAction(graphModel, true));
+    bar.add(saveView);
+    JButton loadView = factory.createToolbarButton();
+    loadView.setAction(new ViewSnapshotAction(graphModel, false));
+    bar.add(loadView);
+
+    // number of queued and running database jobs
+    bar.add(Box.createHorizontalGlue());
+    final JLabel jobsLabel = factory.createLabel();
+    final DbScheduler scheduler = getDatabase().getScheduler();
+    scheduler.addChangeListener(new ChangeListener() {
+      @Override
+      public void stateChanged(ChangeEvent e) {
+        int depth = scheduler.getQueueDepth();
+        jobsLabel.setText(depth == 0 ? "" : depth + " jobs");
+        jobsLabel.setToolTipText("Interactive: " + scheduler.getQueueDepth(DbScheduler.Priority.INTERACTIVE)
+            + ", prefetch: " + scheduler.getQueueDepth(DbScheduler.Priority.PREFETCH)
+            + ", query: " + scheduler.getQueueDepth(DbScheduler.Priority.QUERY)
+            + ", bulk: " + scheduler.getQueueDepth(DbScheduler.Priority.BULK));
+      }
+    });
+    bar.add(jobsLabel);
+    bar.add(Box.createHorizontalStrut(5));
+
     return bar;
   }
 
@@ -159,4 +200,14 @@ public class GraphPanel extends JPanel implements GraphModel {
   public <A, B> void execute(DbAction<A, B> action) {
     graphModel.execute(action);
   }
+
+  @Override
+  public void applyBatch(GraphBatch batch) {
+    graphModel.applyBatch(batch);
+  }
+
+  @Override
+  public void setContainsDetached() {
+    graphModel.setContainsDetached();
+  }
 }
@@ -24,6 +24,7 @@ import edu.uci.ics.jung.visualization.control.DefaultModalGraphMouse;
 import org.eknet.neoswing.ComponentFactory;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
 import org.eknet.neoswing.utils.NeoSwingUtil;
@@ -66,6 +67,10 @@ public class GraphViewer extends JPanel implements GraphModel {
         }
         propertiesPanel.setElement(selected);
       }
+      if (evt.getPropertyName().equals(SelectElementMousePlugin.PROPERTY_HOVERED)) {
+        //noinspection unchecked
+        getDatabase().getNeighborhoodCache().prefetch((ElementId<Vertex>) evt.getNewValue());
+      }
     }
   };
 
@@ -122,7 +127,17 @@ public class GraphViewer extends JPanel implements GraphModel {
   }
 
   public void close() {
-    graphPanel.getDatabase().shutdown();
+    close(null);
+  }
+
+  /**
+   * Closes the database in the background.
+   *
+   * @param whenDone run on the EDT when the database is closed, may be
+   * {@code null}
+   */
+  public void close(Runnable whenDone) {
+    graphPanel.getDatabase().shutdownInBackground(whenDone);
   }
 
   @Override
@@ -144,4 +159,14 @@ public class GraphViewer extends JPanel implements GraphModel {
   public <A, B> void execute(DbAction<A, B> action) {
     graphPanel.execute(action);
   }
+
+  @Override
+  public void applyBatch(GraphBatch batch) {
+    graphPanel.applyBatch(batch);
+  }
+
+  @Override
+  public void setContainsDetached() {
+    graphPanel.setContainsDetached();
+  }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.view;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import edu.uci.ics.jung.graph.Graph;
+import org.eknet.neoswing.DbScheduler;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphDb;
+import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.LabelCache;
+import org.eknet.neoswing.utils.EdtExecutor;
+import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Provides the labels that are drawn for vertices and edges.
+ * <p/>
+ * The label transformers are called while painting, so this service never
+ * touches the database on the calling thread. If a label is not known yet,
+ * a placeholder is returned and the element is queued. Queued elements are
+ * resolved in batches with the prefetch priority of the
+ * {@link DbScheduler}, each batch in one transaction,
+ * and the viewer is repainted once a batch is done. The labels are kept in
+ * the {@link LabelCache} of the database.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 11:02
+ */
+public class LabelService {
+  private static final Logger log = LoggerFactory.getLogger(LabelService.class);
+
+  private static final int batchSize = 500;
+
+  private final GraphModel model;
+  private final ConcurrentMap<ElementId<?>, Boolean> pending = new ConcurrentHashMap<ElementId<?>, Boolean>();
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+  private final Runnable resolver = new Runnable() {
+    @Override
+    public void run() {
+      try {
+        while (!pending.isEmpty()) {
+          resolveBatch();
+        }
+      } finally {
+        scheduled.set(false);
+      }
+      // something may have been queued after the last check
+      if (!pending.isEmpty()) {
+        schedule();
+      }
+    }
+  };
+
+  public LabelService(GraphModel model) {
+    this.model = model;
+  }
+
+  public String getLabel(Vertex vertex) {
+    ElementId<Vertex> id = ElementId.vertexId(vertex);
+    String label = model.getDatabase().getLabelCache().get(id);
+    if (label == null) {
+      request(id);
+      return String.valueOf(id.getId());
+    }
+    return label;
+  }
+
+  public String getLabel(Edge edge) {
+    ElementId<Edge> id = ElementId.edgeId(edge);
+    String label = model.getDatabase().getLabelCache().get(id);
+    if (label == null) {
+      request(id);
+      return "";
+    }
+    return label;
+  }
+
+  private void request(ElementId<?> id) {
+    if (pending.putIfAbsent(id, Boolean.TRUE) == null) {
+      // a miss may mean that the view has outgrown the cache
+      Graph<Vertex, Edge> graph = model.getGraph();
+      int visible = graph.getVertexCount() + graph.getEdgeCount();
+      model.getDatabase().getLabelCache().ensureCapacity(visible + visible / 4);
+      schedule();
+    }
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        model.getDatabase().getScheduler().execute(DbScheduler.Priority.PREFETCH, resolver);
+      } catch (RejectedExecutionException e) {
+        scheduled.set(false);
+        log.debug("Unable to schedule label resolution: " + e.getMessage());
+      }
+    }
+  }
+
+  private void resolveBatch() {
+    List<ElementId<?>> batch = new ArrayList<ElementId<?>>(batchSize);
+    for (ElementId<?> id : pending.keySet()) {
+      batch.add(id);
+      if (batch.size() == batchSize) {
+        break;
+      }
+    }
+    GraphDb db = model.getDatabase();
+    LabelCache cache = db.getLabelCache();
+    GraphDb.Tx tx = db.beginTx();
+    try {
+      for (ElementId<?> id : batch) {
+        String label = "<null>";
+        try {
+          Element el = db.lookup(id);
+          if (el != null) {
+            label = createLabel(el, db);
+          }
+        } catch (RuntimeException e) {
+          log.error("Error obtaining label for " + id, e);
+        }
+        cache.put(id, label);
+      }
+      tx.success();
+    } finally {
+      for (ElementId<?> id : batch) {
+        pending.remove(id);
+      }
+      tx.finish();
+    }
+    EdtExecutor.instance.execute(new Runnable() {
+      @Override
+      public void run() {
+        model.getViewer().repaint();
+      }
+    });
+  }
+
+  static String createLabel(Element el, GraphDb db) {
+    if (el instanceof Edge) {
+      return ((Edge) el).getLabel();
+    }
+    Vertex v = (Vertex) el;
+    String key = DefaultVisualizationViewFactory.createDefaultLabelPrefKey(v, db);
+    String label = NeoSwingUtil.getPrefs().get(key, null);
+    if (label != null && v.getProperty(label) != null) {
+      return v.getId() + ": " + v.getProperty(label).toString();
+    } else if (v.getProperty("name") != null) {
+      return v.getId() + ": " + v.getProperty("name");
+    } else {
+      return v.toString();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.view;
+
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.graph.util.Pair;
+import edu.uci.ics.jung.visualization.Layer;
+import edu.uci.ics.jung.visualization.MultiLayerTransformer;
+import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.renderers.BasicRenderer;
+import org.apache.commons.collections15.Predicate;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+/**
+ * A renderer that only draws what is visible and draws less when zoomed out.
+ * <p/>
+ * Vertices outside the visible area and edges that do not cross it are
+ * skipped before their shapes are computed. Below the
+ * {@link #getLabelThreshold() label threshold} no labels are drawn, and below
+ * the {@link #getDetailThreshold() detail threshold} vertices are drawn as
+ * dots and edges as thin lines. The thresholds are compared against the
+ * current zoom factor.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 17:25
+ */
+public class LevelOfDetailRenderer<V, E> extends BasicRenderer<V, E> {
+
+  private double labelThreshold = 0.6;
+  private double detailThreshold = 0.3;
+  private int margin = 100;
+  private boolean culling = true;
+
+  public double getLabelThreshold() {
+    return labelThreshold;
+  }
+
+  public void setLabelThreshold(double labelThreshold) {
+    this.labelThreshold = labelThreshold;
+  }
+
+  public double getDetailThreshold() {
+    return detailThreshold;
+  }
+
+  public void setDetailThreshold(double detailThreshold) {
+    this.detailThreshold = detailThreshold;
+  }
+
+  /**
+   * The number of pixels around the visible area, where elements are still
+   * drawn. It must be large enough for the vertex shapes.
+   *
+   * @return
+   */
+  public int getMargin() {
+    return margin;
+  }
+
+  public void setMargin(int margin) {
+    this.margin = margin;
+  }
+
+  public boolean isCulling() {
+    return culling;
+  }
+
+  public void setCulling(boolean culling) {
+    this.culling = culling;
+  }
+
+  @Override
+  public void render(RenderContext<V, E> rc, Layout<V, E> layout) {
+    MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+    double scale = mlt.getTransformer(Layer.VIEW).getScale() * mlt.getTransformer(Layer.LAYOUT).getScale();
+    Rectangle2D visible = culling ? getVisibleArea(rc) : null;
+    boolean labels = scale >= labelThreshold;
+    boolean details = scale >= detailThreshold;
+
+    List<E> edges;
+    List<V> vertices;
+    try {
+      edges = new ArrayList<E>(layout.getGraph().getEdges());
+      vertices = new ArrayList<V>(layout.getGraph().getVertices());
+    } catch (ConcurrentModificationException e) {
+      rc.getScreenDevice().repaint();
+      return;
+    }
+
+    Graph<V, E> graph = layout.getGraph();
+    Predicate<Context<Graph<V, E>, E>> edgeInclude = rc.getEdgeIncludePredicate();
+    Predicate<Context<Graph<V, E>, V>> vertexInclude = rc.getVertexIncludePredicate();
+    Graphics2D g = rc.getGraphicsContext().getDelegate();
+    Object antialias = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+    if (!details) {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+    try {
+      for (E e : edges) {
+        Pair<V> ends = graph.getEndpoints(e);
+        if (ends == null) {
+          continue;
+        }
+        Point2D a = layout.transform(ends.getFirst());
+        Point2D b = layout.transform(ends.getSecond());
+        if (a == null || b == null) {
+          continue;
+        }
+        if (visible != null && !visible.intersectsLine(a.getX(), a.getY(), b.getX(), b.getY())) {
+          continue;
+        }
+        if (details) {
+          renderEdge(rc, layout, e);
+          if (labels) {
+            renderEdgeLabel(rc, layout, e);
+          }
+        } else if (edgeInclude == null || edgeInclude.evaluate(Context.<Graph<V, E>, E>getInstance(graph, e))) {
+          Point2D va = mlt.transform(a);
+          Point2D vb = mlt.transform(b);
+          g.setPaint(rc.getEdgeDrawPaintTransformer().transform(e));
+          g.draw(new Line2D.Double(va, vb));
+        }
+      }
+      for (V v : vertices) {
+        Point2D p = layout.transform(v);
+        if (p == null || (visible != null && !visible.contains(p))) {
+          continue;
+        }
+        if (details) {
+          renderVertex(rc, layout, v);
+          if (labels) {
+            renderVertexLabel(rc, layout, v);
+          }
+        } else if (vertexInclude == null || vertexInclude.evaluate(Context.<Graph<V, E>, V>getInstance(graph, v))) {
+          Point2D vp = mlt.transform(p);
+          Paint fill = rc.getVertexFillPaintTransformer().transform(v);
+          g.setPaint(fill == null ? rc.getVertexDrawPaintTransformer().transform(v) : fill);
+          g.fill(new Ellipse2D.Double(vp.getX() - 2, vp.getY() - 2, 4, 4));
+        }
+      }
+    } catch (ConcurrentModificationException e) {
+      rc.getScreenDevice().repaint();
+    } finally {
+      if (antialias != null) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialias);
+      }
+    }
+  }
+
+  /**
+   * Returns the visible area of the screen device plus the margin in layout
+   * coordinates.
+   *
+   * @param rc
+   * @return
+   */
+  private Rectangle2D getVisibleArea(RenderContext<V, E> rc) {
+    Component screen = rc.getScreenDevice();
+    Rectangle bounds = new Rectangle(-margin, -margin, screen.getWidth() + 2 * margin, screen.getHeight() + 2 * margin);
+    return rc.getMultiLayerTransformer().inverseTransform(bounds).getBounds2D();
+  }
+}
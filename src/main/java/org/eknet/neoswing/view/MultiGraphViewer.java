@@ -68,12 +68,19 @@ public class MultiGraphViewer extends JPanel {
     this.graphs = factory.createTabbedPane(new AbstractAction() {
       @Override
       public void actionPerformed(ActionEvent e) {
-        Component c = (Component) e.getSource();
+        final Component c = (Component) e.getSource();
         if (c instanceof GraphViewer) {
-          GraphViewer viewer = (GraphViewer) c;
-          viewer.getDatabase().shutdown();
+          // the tab is removed when the running tasks have finished
+          c.setEnabled(false);
+          ((GraphViewer) c).close(new Runnable() {
+            @Override
+            public void run() {
+              graphs.remove(c);
+            }
+          });
+        } else {
+          graphs.remove(c);
         }
-        graphs.remove(c);
       }
     });
     container.add(this.graphs, BorderLayout.CENTER);
@@ -127,7 +134,7 @@ public class MultiGraphViewer extends JPanel {
   }
 
   public void openDatabase(String type, File directory) {
-    final GraphDb db = new GraphDb(loaderManager.loadGraph(type, directory.getAbsolutePath()));
+    final GraphDb db = new GraphDb(loaderManager.loadGraph(type, directory.getAbsolutePath()), directory);
     Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
       @Override
       public void run() {
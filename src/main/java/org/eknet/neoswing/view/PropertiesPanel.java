@@ -23,9 +23,11 @@ import org.eknet.neoswing.ComponentFactory;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
 import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.Neighborhood;
 import org.eknet.neoswing.actions.DeletePropertyAction;
 import org.eknet.neoswing.actions.EditPropertyAction;
 import org.eknet.neoswing.actions.SetDefaultLabelAction;
+import org.eknet.neoswing.utils.Function;
 import org.eknet.neoswing.utils.NeoSwingUtil;
 import org.eknet.neoswing.utils.PopupTrigger;
 
@@ -45,9 +47,11 @@ import java.awt.Font;
 import java.awt.Window;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Shows the properties of a {@link Element}.
+ * Shows the properties of a {@link Element}. The properties of vertices
+ * are taken from the {@link org.eknet.neoswing.NeighborhoodCache}.
  * <p/>
  * Do not use the same instance for {@link Element}s coming from
  * different databases (or change the class to cleanup the {@code TransactionEventHandler}
@@ -68,6 +72,10 @@ public class PropertiesPanel extends JPanel {
   private JLabel infoLabel;
   private JTable table;
 
+  // a new load supersedes the previous one
+  private final Object loadKey = new Object();
+  private final Object infoKey = new Object();
+
   private final PopupTrigger popupTrigger = new PopupTrigger(true) {
     @Override
     protected JPopupMenu getPopupMenu() {
@@ -117,35 +125,44 @@ public class PropertiesPanel extends JPanel {
     tableModel.reload();
     addPropertyAction.setElement(element);
     
-    if (element != null) {
+    if (element != null && element.isEdge()) {
+      final ElementId<?> id = element;
       model.execute(new DbAction<String, Object>() {
+        @Override
+        public Object getCoalesceKey() {
+          return infoKey;
+        }
+
         @Override
         protected String doInTx(GraphModel model) {
-          Element el = model.getDatabase().lookup(element);
+          Element el = model.getDatabase().lookup(id);
           StringBuilder text = new StringBuilder();
           text.append("Properties of ");
-          if (el instanceof Vertex) {
-            text.append("node ").append(el.getId());
-          }
           if (el instanceof Edge) {
             Edge relationship = (Edge) el;
             text.append("relationship ")
                 .append(relationship.getId())
                 .append(" / ")
-                .append(relationship.getLabel());
+                .append(relationship.getLabel())
+                .append(" [").append(relationship.getPropertyKeys().size()).append("]");
           }
-          text.append(" [").append(tableModel.getRowCount()).append("]");
           return text.toString();
         }
 
         @Override
         protected void done() {
-          infoLabel.setText(safeGet());
+          if (!isCancelled()) {
+            infoLabel.setText(safeGet());
+          }
         }
       });
     }
   }
 
+  private void updateInfo(ElementId<Vertex> id) {
+    infoLabel.setText("Properties of node " + id.getId() + " [" + tableModel.getRowCount() + "]");
+  }
+
   public void setElement(ElementId<?> element) {
     if (NeoSwingUtil.equals(this.element, element)) {
       return;
@@ -190,22 +207,61 @@ public class PropertiesPanel extends JPanel {
     }
     
     private void load() {
-      if (data.isEmpty() && element != null) {
-        model.execute(new DbAction<Object, Object>() {
+      if (element != null && element.isVertex()) {
+        //noinspection unchecked
+        final ElementId<Vertex> id = (ElementId<Vertex>) element;
+        // served from memory if the vertex has been prefetched
+        model.getDatabase().getNeighborhoodCache().fetch(id, loadKey, new Function<Neighborhood, Object>() {
+          @Override
+          public Object apply(Neighborhood neighborhood) {
+            if (!id.equals(element)) {
+              return null;
+            }
+            List<Entry> entries = new ArrayList<Entry>();
+            if (neighborhood != null) {
+              for (Map.Entry<String, Object> property : neighborhood.getProperties().entrySet()) {
+                entries.add(new Entry(property.getKey(), property.getValue()));
+              }
+            }
+            data = entries;
+            fireTableDataChanged();
+            updateInfo(id);
+            return null;
+          }
+        });
+      } else if (element != null) {
+        final ElementId<?> id = element;
+        model.execute(new DbAction<List<Entry>, Object>() {
+          @Override
+          public Object getCoalesceKey() {
+            return loadKey;
+          }
+
           @Override
-          protected Object doInTx(GraphModel model) {
-            Element el = model.getDatabase().lookup(element);
+          protected List<Entry> doInTx(GraphModel model) {
+            List<Entry> entries = new ArrayList<Entry>();
+            Element el = model.getDatabase().lookup(id);
             if (el != null) {
               for (String key : el.getPropertyKeys()) {
-                data.add(new Entry(key, el.getProperty(key)));
+                if (isCancelled()) {
+                  break;
+                }
+                entries.add(new Entry(key, el.getProperty(key)));
               }
             }
-            return null;
+            return entries;
           }
 
           @Override
           protected void done() {
-            fireTableDataChanged();
+            if (isCancelled()) {
+              return;
+            }
+            List<Entry> entries = safeGet();
+            if (entries != null) {
+              data = entries;
+              fireTableDataChanged();
+            }
           }
         });
       }
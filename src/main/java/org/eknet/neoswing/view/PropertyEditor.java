@@ -199,9 +199,9 @@ public class PropertyEditor extends JPanel {
         }
         final Object value = readValue();
         if (value == null) {
-          el.removeProperty(key);
+          model.getDatabase().removeProperty(el, key);
         } else {
-          el.setProperty(key, value);
+          model.getDatabase().setProperty(el, key, value);
         }
         return Arrays.asList(old, value);
       }
@@ -212,6 +212,7 @@ public class PropertyEditor extends JPanel {
         if (list != null) {
           firePropertyChange(PROPERTY_VALUE, list.get(0), list.get(1));
         }
+        getModel().getViewer().repaint();
       }
     });
   }
@@ -22,9 +22,11 @@ import com.tinkerpop.blueprints.Vertex;
 import org.eknet.neoswing.ComponentFactory;
 import org.eknet.neoswing.DbAction;
 import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
 import org.eknet.neoswing.GraphDb;
 import org.eknet.neoswing.GraphModel;
-import org.eknet.neoswing.utils.NeoSwingUtil;
+import org.eknet.neoswing.Neighborhood;
+import org.eknet.neoswing.utils.Function;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -41,7 +43,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Displays the {@code Label}s of the relationships of a node.
+ * Displays the {@code Label}s of the relationships of a node. They are
+ * taken from the {@link org.eknet.neoswing.NeighborhoodCache}.
  *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 11.01.12 14:55
@@ -88,31 +91,16 @@ public class RelationTypesPanel extends JPanel {
   }
 
   private void updateComponents() {
+    infoLabel.setText(null);
     tableModel.reload();
-    if (nodeId != null) {
-      model.execute(new DbAction<String, Object>() {
-        @Override
-        protected String doInTx(GraphModel model) {
-          Vertex v = model.getDatabase().lookup(nodeId);
-          if (v != null) {
-            StringBuilder text = new StringBuilder();
-            text.append("RelationshipTypes of ");
-            text.append("node ").append(v.getId());
-            text.append(" [").append(tableModel.getRowCount()).append("]");
-            return text.toString();
-          } else {
-            return null;
-          }
-        }
+  }
 
-        @Override
-        protected void done() {
-          infoLabel.setText(safeGet());
-        }
-      });
-    } else {
-      infoLabel.setText(null);
-    } 
+  private void updateInfo() {
+    StringBuilder text = new StringBuilder();
+    text.append("RelationshipTypes of ");
+    text.append("node ").append(nodeId.getId());
+    text.append(" [").append(tableModel.getRowCount()).append("]");
+    infoLabel.setText(text.toString());
   }
 
   public void setNodeId(ElementId<Vertex> id) {
@@ -126,43 +114,43 @@ public class RelationTypesPanel extends JPanel {
   }
 
   private void setRelationshipsVisible(final String type, final Direction direction) {
-    model.execute(new DbAction<Object, Runnable>() {
+    model.execute(new DbAction<Object, GraphBatch>() {
       @Override
       protected Object doInTx(GraphModel model) {
         final Vertex v = model.getDatabase().lookup(nodeId);
+        GraphBatch batch = new GraphBatch(GraphBatch.CHUNK_SIZE);
         Iterable<Edge> relationships = direction != null
             ? v.getEdges(direction, type)
             : new ArrayList<Edge>();
-        for (final Edge edge : relationships) {
-          publish(new Runnable() {
-            @Override
-            public void run() {
-              NeoSwingUtil.addEdge(getModel().getGraph(), edge);
-            }
-          });
+        for (Edge edge : relationships) {
+          batch.addEdge(edge);
+          batch = publishFull(batch);
         }
         if (direction != Direction.BOTH) {
           relationships = direction != null
               ? v.getEdges(direction.opposite(), type)
               : v.getEdges(Direction.BOTH, type);
-          for (final Edge rt : relationships) {
-            publish(new Runnable() {
-              @Override
-              public void run() {
-                getModel().getGraph().removeEdge(rt);
-                getModel().getGraph().removeVertex(GraphDb.getOtherNode(rt, v));
-              }
-            });
+          for (Edge rt : relationships) {
+            batch.removeEdge(rt);
+            batch.removeVertex(GraphDb.getOtherNode(rt, v));
+            batch = publishFull(batch);
           }
         }
+        publish(batch);
         return null;
       }
 
-      @Override
-      protected void process(List<Runnable> chunks) {
-        for (Runnable r : chunks) {
-          r.run();
+      private GraphBatch publishFull(GraphBatch batch) {
+        if (batch.size() >= GraphBatch.CHUNK_SIZE) {
+          publish(batch);
+          return new GraphBatch(GraphBatch.CHUNK_SIZE);
         }
+        return batch;
+      }
+
+      @Override
+      protected void process(List<GraphBatch> chunks) {
+        getModel().applyBatch(GraphBatch.merge(chunks));
       }
 
       @Override
@@ -176,36 +164,85 @@ public class RelationTypesPanel extends JPanel {
 
     private List<RelationTypeEntry> data = new ArrayList<RelationTypeEntry>();
     private final String[] cols = new String[]{"Type", "In", "Out"};
+    private ElementId<Vertex> loaded;
+    // a new load supersedes the previous one
+    private final Object loadKey = new Object();
     
     public void reload() {
       this.data = new ArrayList<RelationTypeEntry>();
+      this.loaded = null;
       load();
     }
     
     private void load() {
-      if (data.isEmpty() && nodeId != null) {
-        model.execute(new DbAction<Object, Object>() {
-          @Override
-          protected Object doInTx(GraphModel model) {
-            //noinspection ConstantConditions
-            if (nodeId != null) {
-              Vertex v = model.getDatabase().lookup(nodeId);
-              for (Edge rt : v.getEdges(Direction.BOTH)) {
-                RelationTypeEntry entry = new RelationTypeEntry(rt.getLabel());
-                if (!data.contains(entry)) {
-                  data.add(entry);
-                }
-              }
-            }
+      if (nodeId == null || nodeId.equals(loaded)) {
+        return;
+      }
+      final ElementId<Vertex> id = nodeId;
+      loaded = id;
+      // served from memory if the vertex has been prefetched
+      model.getDatabase().getNeighborhoodCache().fetch(id, loadKey, new Function<Neighborhood, Object>() {
+        @Override
+        public Object apply(Neighborhood neighborhood) {
+          if (!id.equals(nodeId)) {
             return null;
           }
+          if (neighborhood != null && !neighborhood.isComplete()) {
+            scan(id);
+            return null;
+          }
+          List<RelationTypeEntry> entries = new ArrayList<RelationTypeEntry>();
+          if (neighborhood != null) {
+            for (String label : neighborhood.getLabels()) {
+              entries.add(new RelationTypeEntry(label));
+            }
+          }
+          setData(entries);
+          return null;
+        }
+      });
+    }
 
-          @Override
-          protected void done() {
-            fireTableDataChanged();
+    private void scan(final ElementId<Vertex> id) {
+      model.execute(new DbAction<List<RelationTypeEntry>, Object>() {
+        @Override
+        public Object getCoalesceKey() {
+          return loadKey;
+        }
+
+        @Override
+        protected List<RelationTypeEntry> doInTx(GraphModel model) {
+          List<RelationTypeEntry> entries = new ArrayList<RelationTypeEntry>();
+          Vertex v = model.getDatabase().lookup(id);
+          for (Edge rt : v.getEdges(Direction.BOTH)) {
+            if (isCancelled()) {
+              break;
+            }
+            RelationTypeEntry entry = new RelationTypeEntry(rt.getLabel());
+            if (!entries.contains(entry)) {
+              entries.add(entry);
+            }
           }
-        });
-      }
+          return entries;
+        }
+
+        @Override
+        protected void done() {
+          if (isCancelled()) {
+            return;
+          }
+          List<RelationTypeEntry> entries = safeGet();
+          if (entries != null && id.equals(nodeId)) {
+            setData(entries);
+          }
+        }
+      });
+    }
+
+    private void setData(List<RelationTypeEntry> entries) {
+      data = entries;
+      fireTableDataChanged();
+      updateInfo();
     }
 
     @Override
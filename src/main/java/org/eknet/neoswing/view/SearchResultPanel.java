@@ -0,0 +1,336 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.view;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import org.eknet.neoswing.ComponentFactory;
+import org.eknet.neoswing.DbAction;
+import org.eknet.neoswing.ElementId;
+import org.eknet.neoswing.GraphBatch;
+import org.eknet.neoswing.GraphDb;
+import org.eknet.neoswing.GraphModel;
+import org.eknet.neoswing.LabelCache;
+import org.eknet.neoswing.utils.Function;
+import org.eknet.neoswing.utils.ResumableCursor;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.table.AbstractTableModel;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows the results of a search in a table, from which they can be added
+ * to the graph view.
+ * <p/>
+ * Results are either read page by page from a source while the table is
+ * scrolled down, see {@link #setSource(Function)}, or added as they are
+ * found by a running search, see {@link #addResults(List)}. The table only
+ * keeps the ids and labels of the rows loaded so far, so a search matching
+ * the whole database does not fill the memory or the view.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 10:05
+ */
+public class SearchResultPanel extends JPanel {
+
+  private static final int pageSize = 200;
+
+  private final GraphModel model;
+  private final ResultTableModel tableModel = new ResultTableModel();
+  private final JTable table;
+  private final JLabel status;
+
+  private ResumableCursor<Element> cursor;
+  private boolean loading;
+
+  public SearchResultPanel(GraphModel model, ComponentFactory factory) {
+    super(new BorderLayout(5, 5), true);
+    this.model = model;
+
+    table = factory.createTable();
+    table.setModel(tableModel);
+    table.getColumnModel().getColumn(0).setPreferredWidth(80);
+    table.getColumnModel().getColumn(1).setPreferredWidth(300);
+    JScrollPane scrollPane = new JScrollPane(table);
+    scrollPane.setPreferredSize(new Dimension(420, 300));
+    scrollPane.getViewport().addChangeListener(new ChangeListener() {
+      @Override
+      public void stateChanged(ChangeEvent e) {
+        loadMoreIfNeeded();
+      }
+    });
+    add(scrollPane, BorderLayout.CENTER);
+
+    JPanel bottom = factory.createPanel();
+    bottom.setLayout(new BorderLayout(5, 5));
+    status = factory.createLabel();
+    bottom.add(status, BorderLayout.CENTER);
+    JPanel buttons = factory.createPanel();
+    buttons.setLayout(new FlowLayout(FlowLayout.TRAILING));
+    JButton addButton = factory.createButton();
+    addButton.setAction(new AbstractAction("Add selected to view") {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        addSelectedToView();
+      }
+    });
+    buttons.add(addButton);
+    bottom.add(buttons, BorderLayout.EAST);
+    add(bottom, BorderLayout.SOUTH);
+  }
+
+  /**
+   * Replaces the results with the elements of the given source. The source
+   * is read page by page, each page in another transaction, as the table
+   * is scrolled down.
+   *
+   * @param source
+   */
+  @SuppressWarnings("unchecked")
+  public void setSource(final Function<GraphDb, ? extends Iterable<? extends Element>> source) {
+    clear();
+    cursor = new ResumableCursor<Element>(new Function<GraphDb, Iterable<Element>>() {
+      @Override
+      public Iterable<Element> apply(GraphDb db) {
+        return (Iterable<Element>) source.apply(db);
+      }
+    });
+    loadPage();
+  }
+
+  /**
+   * Removes all results.
+   */
+  public void clear() {
+    cursor = null;
+    loading = false;
+    tableModel.clear();
+    updateStatus();
+  }
+
+  /**
+   * Appends results of a running search. This must be called on the EDT.
+   *
+   * @param results
+   */
+  public void addResults(List<Result> results) {
+    tableModel.add(results);
+    updateStatus();
+  }
+
+  /**
+   * Creates a result row for the given element. This must be called inside
+   * a transaction.
+   *
+   * @param el
+   * @param db
+   * @return
+   */
+  public static Result toResult(Element el, GraphDb db) {
+    ElementId<?> id = el instanceof Vertex ? ElementId.vertexId((Vertex) el) : ElementId.edgeId((Edge) el);
+    LabelCache cache = db.getLabelCache();
+    String label = cache.get(id);
+    if (label == null) {
+      label = LabelService.createLabel(el, db);
+      cache.put(id, label);
+    }
+    return new Result(id, label);
+  }
+
+  private void loadMoreIfNeeded() {
+    if (loading || cursor == null || !cursor.hasMore()) {
+      return;
+    }
+    Rectangle visible = table.getVisibleRect();
+    int last = table.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+    if (last < 0 || last >= tableModel.getRowCount() - pageSize / 4) {
+      loadPage();
+    }
+  }
+
+  private void loadPage() {
+    if (loading || cursor == null || !cursor.hasMore()) {
+      return;
+    }
+    loading = true;
+    final ResumableCursor<Element> current = cursor;
+    model.execute(new DbAction<List<Result>, Object>() {
+      @Override
+      public Object getCoalesceKey() {
+        // also used by the scans of the SearchAction
+        return SearchResultPanel.this;
+      }
+
+      @Override
+      protected List<Result> doInTx(GraphModel model) {
+        GraphDb db = model.getDatabase();
+        List<Result> page = new ArrayList<Result>(pageSize);
+        for (Element el : current.next(db, pageSize)) {
+          if (isCancelled()) {
+            break;
+          }
+          if (el != null) {
+            page.add(toResult(el, db));
+          }
+        }
+        return page;
+      }
+
+      @Override
+      protected void done() {
+        if (current != cursor) {
+          return;
+        }
+        loading = false;
+        List<Result> page = safeGet();
+        if (page != null) {
+          addResults(page);
+          loadMoreIfNeeded();
+        }
+      }
+    });
+  }
+
+  private void updateStatus() {
+    String text = tableModel.getRowCount() + " results";
+    if (loading || (cursor != null && cursor.hasMore())) {
+      text += ", scroll down for more";
+    }
+    status.setText(text);
+  }
+
+  private void addSelectedToView() {
+    final List<ElementId<?>> ids = new ArrayList<ElementId<?>>();
+    for (int row : table.getSelectedRows()) {
+      ids.add(tableModel.rows.get(table.convertRowIndexToModel(row)).id);
+    }
+    if (ids.isEmpty()) {
+      return;
+    }
+    model.execute(new DbAction<Object, GraphBatch>() {
+      @Override
+      protected Object doInTx(GraphModel model) {
+        GraphDb db = model.getDatabase();
+        GraphBatch batch = new GraphBatch(Math.min(ids.size(), GraphBatch.CHUNK_SIZE));
+        for (ElementId<?> id : ids) {
+          Element el = db.lookup(id);
+          if (el instanceof Vertex) {
+            batch.addVertex((Vertex) el);
+          } else if (el instanceof Edge) {
+            batch.addEdge((Edge) el);
+          }
+          if (batch.size() >= GraphBatch.CHUNK_SIZE) {
+            publish(batch);
+            batch = new GraphBatch(GraphBatch.CHUNK_SIZE);
+          }
+        }
+        publish(batch);
+        return null;
+      }
+
+      @Override
+      protected void process(List<GraphBatch> chunks) {
+        getModel().applyBatch(GraphBatch.merge(chunks));
+      }
+
+      @Override
+      protected void done() {
+        safeGet();
+      }
+    });
+  }
+
+  /**
+   * A row of the result table.
+   */
+  public static final class Result {
+    private final ElementId<?> id;
+    private final String label;
+
+    private Result(ElementId<?> id, String label) {
+      this.id = id;
+      this.label = label;
+    }
+
+    public ElementId<?> getId() {
+      return id;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private static final class ResultTableModel extends AbstractTableModel {
+
+    private final String[] cols = new String[]{"Id", "Label"};
+    private final List<Result> rows = new ArrayList<Result>();
+
+    private void add(List<Result> results) {
+      if (results.isEmpty()) {
+        return;
+      }
+      int first = rows.size();
+      rows.addAll(results);
+      fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    private void clear() {
+      rows.clear();
+      fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+      return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return cols.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return cols[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+      Result row = rows.get(rowIndex);
+      if (columnIndex == 0) {
+        return String.valueOf(row.id.getId());
+      }
+      return row.label;
+    }
+  }
+}
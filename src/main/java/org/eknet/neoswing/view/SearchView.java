@@ -32,6 +32,9 @@ public class SearchView {
   private JTextField keyField;
   private JTextField valueField;
   private JComboBox valueClassCombo;
+  private JCheckBox fullTextCheckBox;
+  private JCheckBox parallelCheckBox;
+  private JTextField queryField;
 
   private final ComponentFactory factory;
 
@@ -60,6 +63,45 @@ public class SearchView {
     return getValueType().parse(valueField.getText());
   }
 
+  /**
+   * Returns the value as entered.
+   *
+   * @return
+   */
+  public String getText() {
+    return valueField.getText();
+  }
+
+  /**
+   * Whether to search the words of the value in the full text index
+   * instead of the exact value.
+   *
+   * @return
+   */
+  public boolean isFullText() {
+    return fullTextCheckBox.isSelected();
+  }
+
+  /**
+   * Whether to scan all elements with several threads instead of asking
+   * the database for elements with the value.
+   *
+   * @return
+   */
+  public boolean isParallelScan() {
+    return parallelCheckBox.isSelected();
+  }
+
+  /**
+   * Returns the query, that is used instead of key and value if it is
+   * not empty. See {@link org.eknet.neoswing.search.QueryParser}.
+   *
+   * @return
+   */
+  public String getQuery() {
+    return queryField.getText().trim();
+  }
+
   public PropertyEditor.PropertyType getValueType() {
     return (PropertyEditor.PropertyType) valueClassCombo.getSelectedItem();
   }
@@ -69,6 +111,8 @@ public class SearchView {
     valueClassCombo = factory.createComboBox(PropertyEditor.PropertyType.values(), true, false);
     keyField = factory.createTextField();
     valueField = factory.createTextField();
+    queryField = factory.createTextField();
+    queryField.setToolTipText("<html>Instead of key and value, e.g.<br/>age &gt;= 30 and age &lt;= 40 and (type = customer or name = Jo*)</html>");
   }
 
   /**
@@ -166,6 +210,42 @@ public class SearchView {
     gbc.fill = GridBagConstraints.HORIZONTAL;
     gbc.insets = new Insets(5, 5, 5, 5);
     panel1.add(valueClassCombo, gbc);
+    fullTextCheckBox = new JCheckBox();
+    fullTextCheckBox.setText("Full text search (words, * for prefix)");
+    gbc = new GridBagConstraints();
+    gbc.gridx = 1;
+    gbc.gridy = 5;
+    gbc.weightx = 0.7;
+    gbc.anchor = GridBagConstraints.WEST;
+    gbc.insets = new Insets(5, 5, 5, 5);
+    panel1.add(fullTextCheckBox, gbc);
+    parallelCheckBox = new JCheckBox();
+    parallelCheckBox.setText("Parallel scan (for unindexed keys)");
+    gbc = new GridBagConstraints();
+    gbc.gridx = 1;
+    gbc.gridy = 6;
+    gbc.weightx = 0.7;
+    gbc.anchor = GridBagConstraints.WEST;
+    gbc.insets = new Insets(5, 5, 5, 5);
+    panel1.add(parallelCheckBox, gbc);
+    final JLabel label6 = new JLabel();
+    label6.setHorizontalAlignment(4);
+    label6.setText("Query");
+    gbc = new GridBagConstraints();
+    gbc.gridx = 0;
+    gbc.gridy = 7;
+    gbc.weightx = 0.2;
+    gbc.fill = GridBagConstraints.HORIZONTAL;
+    gbc.insets = new Insets(5, 5, 5, 5);
+    panel1.add(label6, gbc);
+    gbc = new GridBagConstraints();
+    gbc.gridx = 1;
+    gbc.gridy = 7;
+    gbc.weightx = 0.7;
+    gbc.anchor = GridBagConstraints.WEST;
+    gbc.fill = GridBagConstraints.HORIZONTAL;
+    gbc.insets = new Insets(5, 5, 5, 5);
+    panel1.add(queryField, gbc);
     final JPanel panel2 = new JPanel();
     panel2.setLayout(new BorderLayout(0, 0));
     root.add(panel2, BorderLayout.NORTH);
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.view;
+
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.graph.util.EdgeIndexFunction;
+import edu.uci.ics.jung.graph.util.Pair;
+import edu.uci.ics.jung.visualization.MultiLayerTransformer;
+import edu.uci.ics.jung.visualization.VisualizationServer;
+import edu.uci.ics.jung.visualization.picking.ShapePickSupport;
+import org.apache.commons.collections15.Predicate;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.Shape;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ShapePickSupport} that only tests the elements near the mouse.
+ * <p/>
+ * The vertex positions are kept in a grid. Edges are put into all cells
+ * that their bounding box covers, very long edges are always tested. The
+ * box is padded by the bulge of the curved edge shape of parallel edges.
+ * <p/>
+ * The grid is marked stale whenever the visualization model changes, that
+ * is if the layout moves vertices or the graph changes. The next pick then
+ * moves the vertices whose cell has changed, together with their edges, to
+ * their new cells. Only if the number of elements has changed, or at most
+ * once every {@link #getRebuildInterval()} milliseconds to adapt the cell
+ * size to a growing layout, the grid is built from scratch. So a pick only
+ * tests the shapes of the elements in a few cells, also while a layout is
+ * running.
+ * <p/>
+ * Vertex shapes are not known to the grid; {@link #getPickRadius()} must be
+ * at least half the size of the largest vertex shape in screen pixels.
+ *
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 18.10.26 16:50
+ */
+public class SpatialPickSupport<V, E> extends ShapePickSupport<V, E> {
+
+  private static final int maxEdgeCells = 256;
+
+  /**
+   * The control offset of the parallel edges of JUNG's quad curve edge
+   * shape. The curve bulges half of it per parallel edge index.
+   */
+  private static final double curveOffset = 20;
+
+  private final ThreadLocal<Rectangle2D> query = new ThreadLocal<Rectangle2D>();
+  private volatile Grid grid;
+  private volatile boolean stale;
+  private double pickRadius = 150;
+  private long rebuildInterval = 2000;
+
+  public SpatialPickSupport(VisualizationServer<V, E> vv) {
+    super(vv);
+    vv.getModel().addChangeListener(new ChangeListener() {
+      @Override
+      public void stateChanged(ChangeEvent e) {
+        stale = true;
+      }
+    });
+  }
+
+  public double getPickRadius() {
+    return pickRadius;
+  }
+
+  public void setPickRadius(double pickRadius) {
+    this.pickRadius = pickRadius;
+  }
+
+  public long getRebuildInterval() {
+    return rebuildInterval;
+  }
+
+  public void setRebuildInterval(long rebuildInterval) {
+    this.rebuildInterval = rebuildInterval;
+  }
+
+  @Override
+  public V getVertex(Layout<V, E> layout, double x, double y) {
+    query.set(toLayout(x, y, pickRadius));
+    try {
+      return super.getVertex(layout, x, y);
+    } finally {
+      query.remove();
+    }
+  }
+
+  @Override
+  public Collection<V> getVertices(Layout<V, E> layout, Shape shape) {
+    Rectangle2D bounds = vv.getRenderContext().getMultiLayerTransformer().inverseTransform(shape).getBounds2D();
+    query.set(new Rectangle2D.Double(bounds.getX() - 1, bounds.getY() - 1, bounds.getWidth() + 2, bounds.getHeight() + 2));
+    try {
+      return super.getVertices(layout, shape);
+    } finally {
+      query.remove();
+    }
+  }
+
+  @Override
+  public E getEdge(Layout<V, E> layout, double x, double y) {
+    query.set(toLayout(x, y, Math.max(pickSize, 1)));
+    try {
+      return super.getEdge(layout, x, y);
+    } finally {
+      query.remove();
+    }
+  }
+
+  @Override
+  protected Collection<V> getFilteredVertices(Layout<V, E> layout) {
+    Rectangle2D area = query.get();
+    if (area == null) {
+      return super.getFilteredVertices(layout);
+    }
+    Grid g = getGrid(layout);
+    Collection<V> candidates = g.vertices(area);
+    if (candidates == null) {
+      return super.getFilteredVertices(layout);
+    }
+    Predicate<Context<Graph<V, E>, V>> include = vv.getRenderContext().getVertexIncludePredicate();
+    List<V> result = new ArrayList<V>(candidates.size());
+    for (V v : candidates) {
+      if (!layout.getGraph().containsVertex(v)) {
+        continue;
+      }
+      if (include == null || include.evaluate(Context.<Graph<V, E>, V>getInstance(layout.getGraph(), v))) {
+        result.add(v);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  protected Collection<E> getFilteredEdges(Layout<V, E> layout) {
+    Rectangle2D area = query.get();
+    if (area == null) {
+      return super.getFilteredEdges(layout);
+    }
+    Grid g = getGrid(layout);
+    Collection<E> candidates = g.edges(area);
+    if (candidates == null) {
+      return super.getFilteredEdges(layout);
+    }
+    Predicate<Context<Graph<V, E>, E>> include = vv.getRenderContext().getEdgeIncludePredicate();
+    List<E> result = new ArrayList<E>(candidates.size());
+    for (E e : candidates) {
+      if (!layout.getGraph().containsEdge(e)) {
+        continue;
+      }
+      if (include == null || include.evaluate(Context.<Graph<V, E>, E>getInstance(layout.getGraph(), e))) {
+        result.add(e);
+      }
+    }
+    return result;
+  }
+
+  private Rectangle2D toLayout(double x, double y, double radius) {
+    MultiLayerTransformer mlt = vv.getRenderContext().getMultiLayerTransformer();
+    Point2D p = mlt.inverseTransform(new Point2D.Double(x, y));
+    Point2D q = mlt.inverseTransform(new Point2D.Double(x + radius, y + radius));
+    double rx = Math.abs(q.getX() - p.getX());
+    double ry = Math.abs(q.getY() - p.getY());
+    double r = Math.max(rx, ry);
+    return new Rectangle2D.Double(p.getX() - r, p.getY() - r, 2 * r, 2 * r);
+  }
+
+  private Grid getGrid(Layout<V, E> layout) {
+    Grid g = grid;
+    if (g != null && g.layout == layout && !stale) {
+      return g;
+    }
+    stale = false;
+    while (true) {
+      try {
+        if (g == null || g.layout != layout
+            || System.currentTimeMillis() - g.created >= rebuildInterval || !g.update()) {
+          g = new Grid(layout);
+        }
+        break;
+      } catch (ConcurrentModificationException e) {
+        // the graph has been changed while reading, try again
+        g = null;
+      }
+    }
+    grid = g;
+    return g;
+  }
+
+  private final class Grid {
+    private final Layout<V, E> layout;
+    private final long created = System.currentTimeMillis();
+    private final double cellSize;
+    private final Map<Long, List<V>> vertexCells = new HashMap<Long, List<V>>();
+    private final Map<Long, List<E>> edgeCells = new HashMap<Long, List<E>>();
+    private final Map<V, Long> vertexKeys = new HashMap<V, Long>();
+    private final Map<E, long[]> edgeRanges = new HashMap<E, long[]>();
+    private final Set<E> longEdges = new LinkedHashSet<E>();
+    private final EdgeIndexFunction<V, E> index = vv.getRenderContext().getParallelEdgeIndexFunction();
+
+    private Grid(Layout<V, E> layout) {
+      this.layout = layout;
+      Graph<V, E> graph = layout.getGraph();
+      double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+      double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+      int n = 0;
+      for (V v : graph.getVertices()) {
+        Point2D p = layout.transform(v);
+        if (p == null) {
+          continue;
+        }
+        n++;
+        minX = Math.min(minX, p.getX());
+        minY = Math.min(minY, p.getY());
+        maxX = Math.max(maxX, p.getX());
+        maxY = Math.max(maxY, p.getY());
+      }
+      if (n == 0) {
+        cellSize = 100;
+      } else {
+        // about four vertices per cell on average
+        double area = Math.max(maxX - minX, 1) * Math.max(maxY - minY, 1);
+        cellSize = Math.max(10, Math.sqrt(area * 4 / n));
+      }
+      for (V v : graph.getVertices()) {
+        placeVertex(v);
+      }
+      for (E e : graph.getEdges()) {
+        placeEdge(graph, e);
+      }
+    }
+
+    /**
+     * Moves the vertices whose cell has changed and their edges.
+     *
+     * @return {@code false} if the graph has changed and the grid must be
+     * built again
+     */
+    private boolean update() {
+      Graph<V, E> graph = layout.getGraph();
+      if (graph.getVertexCount() != vertexKeys.size() || graph.getEdgeCount() != edgeRanges.size() + longEdges.size()) {
+        return false;
+      }
+      Set<V> moved = new HashSet<V>();
+      for (V v : graph.getVertices()) {
+        Long key = vertexKeys.get(v);
+        if (key == null) {
+          // replaced by another vertex
+          return false;
+        }
+        Point2D p = layout.transform(v);
+        if (p == null ? key != Long.MIN_VALUE : key != key(cell(p.getX()), cell(p.getY()))) {
+          moved.add(v);
+        }
+      }
+      if (moved.isEmpty()) {
+        return true;
+      }
+      Set<E> edges = new HashSet<E>();
+      for (V v : moved) {
+        remove(vertexCells, vertexKeys.remove(v), v);
+        placeVertex(v);
+        Collection<E> incident = graph.getIncidentEdges(v);
+        if (incident != null) {
+          edges.addAll(incident);
+        }
+      }
+      for (E e : edges) {
+        removeEdge(e);
+        placeEdge(graph, e);
+      }
+      return true;
+    }
+
+    private void placeVertex(V v) {
+      Point2D p = layout.transform(v);
+      // vertices without a position are remembered, but not put into a cell
+      long key = p == null ? Long.MIN_VALUE : key(cell(p.getX()), cell(p.getY()));
+      vertexKeys.put(v, key);
+      if (p != null) {
+        add(vertexCells, key, v);
+      }
+    }
+
+    private void placeEdge(Graph<V, E> graph, E e) {
+      Pair<V> ends = graph.getEndpoints(e);
+      Point2D a = ends == null ? null : layout.transform(ends.getFirst());
+      Point2D b = ends == null ? null : layout.transform(ends.getSecond());
+      if (a == null || b == null) {
+        edgeRanges.put(e, new long[0]);
+        return;
+      }
+      double pad = curveOffset / 2 * (1 + (index == null ? 0 : Math.max(0, index.getIndex(graph, e))));
+      long[] range = new long[] {
+          cell(Math.min(a.getX(), b.getX()) - pad), cell(Math.max(a.getX(), b.getX()) + pad),
+          cell(Math.min(a.getY(), b.getY()) - pad), cell(Math.max(a.getY(), b.getY()) + pad)
+      };
+      if ((range[1] - range[0] + 1) * (range[3] - range[2] + 1) > maxEdgeCells) {
+        longEdges.add(e);
+        return;
+      }
+      edgeRanges.put(e, range);
+      for (long cx = range[0]; cx <= range[1]; cx++) {
+        for (long cy = range[2]; cy <= range[3]; cy++) {
+          add(edgeCells, key(cx, cy), e);
+        }
+      }
+    }
+
+    private void removeEdge(E e) {
+      if (longEdges.remove(e)) {
+        return;
+      }
+      long[] range = edgeRanges.remove(e);
+      if (range == null || range.length == 0) {
+        return;
+      }
+      for (long cx = range[0]; cx <= range[1]; cx++) {
+        for (long cy = range[2]; cy <= range[3]; cy++) {
+          remove(edgeCells, key(cx, cy), e);
+        }
+      }
+    }
+    /**
+     * Returns the vertices in the cells covering the given area or
+     * {@code null} if the area is so large that a full scan is cheaper.
+     */
+    private Collection<V> vertices(Rectangle2D area) {
+      if (cellCount(area) > vertexCells.size()) {
+        return null;
+      }
+      List<V> result = new ArrayList<V>();
+      for (long cx = cell(area.getMinX()); cx <= cell(area.getMaxX()); cx++) {
+        for (long cy = cell(area.getMinY()); cy <= cell(area.getMaxY()); cy++) {
+          List<V> list = vertexCells.get(key(cx, cy));
+          if (list != null) {
+            result.addAll(list);
+          }
+        }
+      }
+      return result;
+    }
+
+    private Collection<E> edges(Rectangle2D area) {
+      if (cellCount(area) > edgeCells.size()) {
+        return null;
+      }
+      Set<E> result = new LinkedHashSet<E>(longEdges);
+      for (long cx = cell(area.getMinX()); cx <= cell(area.getMaxX()); cx++) {
+        for (long cy = cell(area.getMinY()); cy <= cell(area.getMaxY()); cy++) {
+          List<E> list = edgeCells.get(key(cx, cy));
+          if (list != null) {
+            result.addAll(list);
+          }
+        }
+      }
+      return result;
+    }
+
+    private double cellCount(Rectangle2D area) {
+      return (cell(area.getMaxX()) - cell(area.getMinX()) + 1d) * (cell(area.getMaxY()) - cell(area.getMinY()) + 1d);
+    }
+
+    private long cell(double c) {
+      return (long) Math.floor(c / cellSize);
+    }
+
+    private long key(long cx, long cy) {
+      return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+
+    private <T> void add(Map<Long, List<T>> cells, long key, T element) {
+      List<T> list = cells.get(key);
+      if (list == null) {
+        list = new ArrayList<T>(4);
+        cells.put(key, list);
+      }
+      list.add(element);
+    }
+
+    private <T> void remove(Map<Long, List<T>> cells, Long key, T element) {
+      List<T> list = key == null ? null : cells.get(key);
+      if (list != null) {
+        list.remove(element);
+        if (list.isEmpty()) {
+          cells.remove(key);
+        }
+      }
+    }
+  }
+}
@@ -29,6 +29,7 @@ import org.eknet.neoswing.ElementId;
 import org.eknet.neoswing.GraphModel;
 import org.eknet.neoswing.actions.ExpandNodeAction;
 import org.eknet.neoswing.actions.ResetAction;
+import org.eknet.neoswing.layout.IncrementalLayout;
 import org.eknet.neoswing.utils.NeoSwingUtil;
 
 import java.awt.event.MouseEvent;
@@ -78,7 +79,9 @@ public class NavigateNodeMousePlugin extends AbstractMousePlugin {
 
         ExpandNodeAction expandAction = new ExpandNodeAction(ElementId.vertexId(node), graphModel, Direction.BOTH);
         NeoSwingUtil.invoke(expandAction, graphModel.getViewer());
-        graphModel.getViewer().setGraphLayout(new FRLayout2<Vertex, Edge> (graph));
+        if (IncrementalLayout.find(graphModel.getViewer().getGraphLayout()) == null) {
+          graphModel.getViewer().setGraphLayout(new FRLayout2<Vertex, Edge> (graph));
+        }
         centerNode(node);
       }
     };
@@ -113,6 +113,15 @@ public class NodePopupMenu extends AbstractMousePlugin {
     }
     factory.addMenuItemGroup(menu, createRelationshipActions);
 
+    List<Vertex> others = new ArrayList<Vertex>(picked);
+    others.remove(node);
+    if (others.size() == 1) {
+      menu.addSeparator();
+      FindPathAction findPath = new FindPathAction(graphModel, nodeId, ElementId.vertexId(others.get(0)));
+      findPath.setWindow(owner);
+      menu.add(new JMenuItem(findPath));
+    }
+
     menu.add(new JPopupMenu.Separator());
     EditPropertyAction editAction = new EditPropertyAction(nodeId, graphModel);
     editAction.setWindow(owner);
@@ -156,6 +165,13 @@ public class NodePopupMenu extends AbstractMousePlugin {
     list.add(new ExpandNodeAction(node, model, Direction.BOTH));
     list.add(new ExpandNodeAction(node, model, Direction.OUT));
     list.add(new ExpandNodeAction(node, model, Direction.IN));
+    list.add(new ExpandHopsAction(node, model));
+    for (Direction direction : Direction.values()) {
+      ExpandNodeAction next = ExpandNodeAction.nextPage(node, model, direction);
+      if (next != null) {
+        list.add(next);
+      }
+    }
     return list;
   }
 
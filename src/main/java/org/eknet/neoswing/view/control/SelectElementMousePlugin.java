@@ -22,19 +22,25 @@ import edu.uci.ics.jung.visualization.VisualizationViewer;
 import org.eknet.neoswing.ElementId;
 
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionListener;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 
 /**
+ * Fires {@link #PROPERTY_ELEMENT} if a vertex or edge is clicked and
+ * {@link #PROPERTY_HOVERED} if the mouse is moved onto another vertex.
+ *
  * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
  * @since 11.01.12 21:15
  */
-public class SelectElementMousePlugin extends AbstractMousePlugin {
+public class SelectElementMousePlugin extends AbstractMousePlugin implements MouseMotionListener {
 
   public static final String PROPERTY_ELEMENT = "selectedElement";
+  public static final String PROPERTY_HOVERED = "hoveredVertex";
 
   private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
   private ElementId<?> selected;
+  private ElementId<Vertex> hovered;
 
   public SelectElementMousePlugin(int button) {
     super(button);
@@ -70,4 +76,19 @@ public class SelectElementMousePlugin extends AbstractMousePlugin {
       }
     }
   }
+
+  @Override
+  public void mouseMoved(MouseEvent e) {
+    VisualizationViewer<Vertex, Edge> viewer = getViewer(e);
+    Vertex node = viewer.getPickSupport().getVertex(viewer.getGraphLayout(), e.getX(), e.getY());
+    ElementId<Vertex> id = node != null ? ElementId.vertexId(node) : null;
+    if (id != null && !id.equals(hovered)) {
+      propertyChangeSupport.firePropertyChange(PROPERTY_HOVERED, hovered, id);
+    }
+    hovered = id;
+  }
+
+  @Override
+  public void mouseDragged(MouseEvent e) {
+  }
 }
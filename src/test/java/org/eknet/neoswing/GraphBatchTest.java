@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import edu.uci.ics.jung.graph.Graph;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 20:10
+ */
+public class GraphBatchTest {
+
+  private Vertex a;
+  private Vertex b;
+  private Vertex c;
+  private Edge ab;
+  private Edge bc;
+  private Graph<Vertex, Edge> view;
+
+  @Before
+  public void setUp() throws Exception {
+    TinkerGraph db = new TinkerGraph();
+    a = db.addVertex("a");
+    b = db.addVertex("b");
+    c = db.addVertex("c");
+    ab = db.addEdge("ab", a, b, "knows");
+    bc = db.addEdge("bc", b, c, "knows");
+    view = new DirectedSparseMultigraph<Vertex, Edge>();
+  }
+
+  @Test
+  public void testAdd() throws Exception {
+    GraphBatch batch = new GraphBatch().addVertex(a).addEdge(ab).addEdge(ab).addVertex(a);
+    assertEquals(4, batch.size());
+    batch.applyTo(view, null, false);
+    assertEquals(2, view.getVertexCount());
+    assertEquals(1, view.getEdgeCount());
+    assertSame(a, view.getSource(ab));
+    assertSame(b, view.getDest(ab));
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    new GraphBatch().addEdge(ab).addEdge(bc).applyTo(view, null, false);
+    new GraphBatch().removeEdge(ab).applyTo(view, null, false);
+    assertFalse(view.containsEdge(ab));
+    assertTrue(view.containsVertex(a));
+
+    new GraphBatch().removeVertex(b).applyTo(view, null, false);
+    assertFalse(view.containsVertex(b));
+    assertFalse(view.containsEdge(bc));
+    assertEquals(2, view.getVertexCount());
+  }
+
+  @Test
+  public void testMergeKeepsOrder() throws Exception {
+    GraphBatch first = new GraphBatch().addVertex(a).addVertex(c);
+    GraphBatch second = new GraphBatch().removeVertex(a);
+    GraphBatch third = new GraphBatch().addVertex(a);
+    assertSame(first, GraphBatch.merge(Arrays.asList(first)));
+
+    GraphBatch merged = GraphBatch.merge(Arrays.asList(first, second));
+    assertEquals(3, merged.size());
+    merged.applyTo(view, null, false);
+    assertFalse(view.containsVertex(a));
+    assertTrue(view.containsVertex(c));
+
+    GraphBatch.merge(Arrays.asList(second, third)).applyTo(view, null, false);
+    assertTrue(view.containsVertex(a));
+    assertTrue(new GraphBatch().isEmpty());
+  }
+}
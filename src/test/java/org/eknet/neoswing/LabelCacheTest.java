@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 20:20
+ */
+public class LabelCacheTest {
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws Exception {
+    LabelCache cache = new LabelCache(2);
+    cache.put(ElementId.forVertex(1L), "one");
+    cache.put(ElementId.forVertex(2L), "two");
+    assertEquals("one", cache.get(ElementId.forVertex(1L)));
+    cache.put(ElementId.forVertex(3L), "three");
+    assertEquals(2, cache.size());
+    assertTrue(cache.contains(ElementId.forVertex(1L)));
+    assertFalse(cache.contains(ElementId.forVertex(2L)));
+    assertTrue(cache.contains(ElementId.forVertex(3L)));
+  }
+
+  @Test
+  public void testVertexAndEdgeIdsDiffer() throws Exception {
+    LabelCache cache = new LabelCache(10);
+    cache.put(ElementId.forVertex(1L), "vertex");
+    cache.put(ElementId.forEdge(1L), "edge");
+    assertEquals("vertex", cache.get(ElementId.forVertex(1L)));
+    assertEquals("edge", cache.get(ElementId.forEdge(1L)));
+    cache.invalidate(ElementId.forEdge(1L));
+    assertNull(cache.get(ElementId.forEdge(1L)));
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEnsureCapacity() throws Exception {
+    LabelCache cache = new LabelCache(2);
+    cache.ensureCapacity(1);
+    assertEquals(2, cache.getCapacity());
+    cache.ensureCapacity(100);
+    assertEquals(100, cache.getCapacity());
+    for (long i = 0; i < 150; i++) {
+      cache.put(ElementId.forVertex(i), "v" + i);
+    }
+    assertEquals(100, cache.size());
+    assertFalse(cache.contains(ElementId.forVertex(49L)));
+    assertTrue(cache.contains(ElementId.forVertex(50L)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() throws Exception {
+    new LabelCache(0);
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 19:10
+ */
+public class CsvTest {
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    List<List<String>> records = Arrays.asList(
+        Arrays.asList("id", "name", "note"),
+        Arrays.asList("1", "a,b", "say \"hi\""),
+        Arrays.asList("2", "", "two\nlines"),
+        Arrays.asList("3", "plain", "cr\r\nlf"));
+    StringWriter out = new StringWriter();
+    CsvWriter writer = new CsvWriter(out);
+    for (List<String> record : records) {
+      for (String field : record) {
+        writer.field(field);
+      }
+      writer.endRecord();
+    }
+    writer.flush();
+    assertTrue(out.toString().startsWith("id,name,note\n1,\"a,b\",\"say \"\"hi\"\"\"\n"));
+
+    CsvReader reader = new CsvReader(new StringReader(out.toString()));
+    for (List<String> record : records) {
+      assertEquals(record, new ArrayList<String>(reader.next()));
+    }
+    assertNull(reader.next());
+    assertEquals(4, reader.getRecordNumber());
+  }
+
+  @Test
+  public void testReadLineEndings() throws Exception {
+    CsvReader reader = new CsvReader(new StringReader("a,b\r\nc\rd,\n"));
+    assertEquals(Arrays.asList("a", "b"), reader.next());
+    assertEquals(Arrays.asList("c"), reader.next());
+    assertEquals(Arrays.asList("d", ""), reader.next());
+    assertNull(reader.next());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnterminatedQuote() throws Exception {
+    new CsvReader(new StringReader("\"abc\n")).next();
+  }
+
+  @Test
+  public void testParseVertices() throws Exception {
+    Recorder rec = parse("id,name,age:int,score:double,active:boolean\n"
+        + "1,Jo,30,1.5,true\n"
+        + "\n"
+        + "2,,,,\n");
+    assertEquals(Arrays.asList("v 1", "v 2"), rec.events);
+    Map<String, Object> first = rec.properties.get(0);
+    assertEquals("Jo", first.get("name"));
+    assertEquals(Integer.valueOf(30), first.get("age"));
+    assertEquals(Double.valueOf(1.5), first.get("score"));
+    assertEquals(Boolean.TRUE, first.get("active"));
+    assertTrue(rec.properties.get(1).isEmpty());
+  }
+
+  @Test
+  public void testParseEdges() throws Exception {
+    Recorder rec = parse("source,target,label,weight:long\n1,2,knows,7\n2,1,\"likes, a lot\"\n");
+    assertEquals(Arrays.asList("e 1->2 knows", "e 2->1 likes, a lot"), rec.events);
+    assertEquals(Long.valueOf(7), rec.properties.get(0).get("weight"));
+    assertTrue(rec.properties.get(1).isEmpty());
+  }
+
+  @Test
+  public void testParseStops() throws Exception {
+    Recorder rec = new Recorder();
+    rec.limit = 1;
+    assertFalse(new CsvParser().parse(stream("id\n1\n2\n"), rec));
+    assertEquals(1, rec.events.size());
+  }
+
+  @Test
+  public void testParseErrors() throws Exception {
+    assertParseError("name,age\nJo,30\n");
+    assertParseError("id,age:int\n1,thirty\n");
+    assertParseError("source,target,label\n1,2\n");
+  }
+
+  private static void assertParseError(String csv) throws Exception {
+    try {
+      parse(csv);
+      fail("Expected an IOException for: " + csv);
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static Recorder parse(String csv) throws IOException {
+    Recorder rec = new Recorder();
+    assertTrue(new CsvParser().parse(stream(csv), rec));
+    return rec;
+  }
+
+  private static ByteArrayInputStream stream(String csv) throws IOException {
+    return new ByteArrayInputStream(csv.getBytes("UTF-8"));
+  }
+
+  private static class Recorder implements GraphHandler {
+    private final List<String> events = new ArrayList<String>();
+    private final List<Map<String, Object>> properties = new ArrayList<Map<String, Object>>();
+    private int limit = Integer.MAX_VALUE;
+
+    @Override
+    public boolean vertex(String id, Map<String, Object> props) {
+      events.add("v " + id);
+      properties.add(new HashMap<String, Object>(props));
+      return events.size() < limit;
+    }
+
+    @Override
+    public boolean edge(String id, String source, String target, String label, Map<String, Object> props) {
+      events.add("e " + source + "->" + target + " " + label);
+      properties.add(new HashMap<String, Object>(props));
+      return events.size() < limit;
+    }
+  }
+}
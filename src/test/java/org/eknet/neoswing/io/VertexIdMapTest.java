@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 19:25
+ */
+public class VertexIdMapTest {
+
+  @Test
+  public void testNumericIds() throws Exception {
+    VertexIdMap map = new VertexIdMap(4);
+    for (long i = -500; i < 5000; i++) {
+      map.put(String.valueOf(i), i * 3);
+    }
+    assertEquals(5500, map.size());
+    for (long i = -500; i < 5000; i++) {
+      assertEquals(Long.valueOf(i * 3), map.get(String.valueOf(i)));
+    }
+    assertNull(map.get("5000"));
+  }
+
+  @Test
+  public void testKeepsIdType() throws Exception {
+    VertexIdMap map = new VertexIdMap();
+    map.put("1", 10);
+    map.put("2", 20L);
+    map.put("3", "#9:3");
+    assertEquals(Integer.valueOf(10), map.get("1"));
+    assertEquals(Long.valueOf(20), map.get("2"));
+    assertEquals("#9:3", map.get("3"));
+    assertEquals(3, map.size());
+  }
+
+  @Test
+  public void testOtherFileIds() throws Exception {
+    VertexIdMap map = new VertexIdMap();
+    map.put("7", 1L);
+    map.put("007", 2L);
+    map.put("-0", 3L);
+    map.put("n7", 4L);
+    map.put("12345678901234567890", 5L);
+    assertEquals(Long.valueOf(1), map.get("7"));
+    assertEquals(Long.valueOf(2), map.get("007"));
+    assertEquals(Long.valueOf(3), map.get("-0"));
+    assertEquals(Long.valueOf(4), map.get("n7"));
+    assertEquals(Long.valueOf(5), map.get("12345678901234567890"));
+    assertNull(map.get("0"));
+    assertEquals(5, map.size());
+  }
+
+  @Test
+  public void testReplace() throws Exception {
+    VertexIdMap map = new VertexIdMap(4);
+    for (long i = 0; i < 20; i++) {
+      map.put(String.valueOf(i), i);
+    }
+    map.put("5", 50L);
+    map.put("6", "six");
+    assertEquals(Long.valueOf(50), map.get("5"));
+    assertEquals("six", map.get("6"));
+    for (long i = 7; i < 20; i++) {
+      assertEquals(Long.valueOf(i), map.get(String.valueOf(i)));
+    }
+    map.put("6", 60L);
+    assertEquals(Long.valueOf(60), map.get("6"));
+    assertEquals(20, map.size());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.search;
+
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 19:40
+ */
+public class QueryParserTest {
+
+  private Vertex jo;
+
+  @Before
+  public void setUp() throws Exception {
+    jo = new TinkerGraph().addVertex(null);
+    jo.setProperty("name", "Jo Smith");
+    jo.setProperty("age", 35);
+    jo.setProperty("height", 1.8);
+    jo.setProperty("active", true);
+    jo.setProperty("type", "customer");
+  }
+
+  @Test
+  public void testComparisons() throws Exception {
+    assertMatch("age = 35", true);
+    assertMatch("age = 35.0", true);
+    assertMatch("age = \"35\"", false);
+    assertMatch("age > 35", false);
+    assertMatch("age >= 35", true);
+    assertMatch("age < 36", true);
+    assertMatch("age <= 34", false);
+    assertMatch("height > 1.5", true);
+    assertMatch("active = true", true);
+    assertMatch("name = \"Jo Smith\"", true);
+    assertMatch("name = Jo*", true);
+    assertMatch("name = Smith*", false);
+    assertMatch("missing = 1", false);
+    assertMatch("name > 1", false);
+  }
+
+  @Test
+  public void testCombinations() throws Exception {
+    assertMatch("age >= 30 and age <= 40", true);
+    assertMatch("age >= 30 && age <= 34", false);
+    assertMatch("age > 40 or type = customer", true);
+    assertMatch("age > 40 || type = supplier", false);
+    assertMatch("age > 40 or type = customer and active = false", false);
+    assertMatch("(age > 40 or type = customer) and active = true", true);
+    assertMatch("age >= 30 AND (type = supplier OR name = Jo*)", true);
+  }
+
+  @Test
+  public void testStructure() throws Exception {
+    Query q = QueryParser.parse("a = 1 or b = x and c = y*");
+    assertTrue(q instanceof Query.Or);
+    Query.Or or = (Query.Or) q;
+    assertEquals(2, or.getQueries().size());
+    assertEquals(Long.valueOf(1), ((Query.Eq) or.getQueries().get(0)).getValue());
+    Query.And and = (Query.And) or.getQueries().get(1);
+    assertEquals("x", ((Query.Eq) and.getQueries().get(0)).getValue());
+    assertEquals("y", ((Query.Prefix) and.getQueries().get(1)).getPrefix());
+
+    assertEquals("and \"quoted\"", ((Query.Eq) QueryParser.parse("k = \"and \\\"quoted\\\"\"")).getValue());
+    assertEquals("android", ((Query.Eq) QueryParser.parse("k = android")).getValue());
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    assertInvalid("");
+    assertInvalid("age");
+    assertInvalid("age =");
+    assertInvalid("age ! 3");
+    assertInvalid("(age = 3");
+    assertInvalid("age = 3)");
+    assertInvalid("name > Jo*");
+    assertInvalid("name = \"Jo");
+    assertInvalid("a = 1 and");
+  }
+
+  private void assertMatch(String text, boolean expected) {
+    assertEquals(text, expected, QueryParser.parse(text).matches(jo));
+  }
+
+  private static void assertInvalid(String text) {
+    try {
+      QueryParser.parse(text);
+      fail("Expected an error for: " + text);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.search;
+
+import com.tinkerpop.blueprints.Element;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.tg.TinkerGraph;
+import org.eknet.neoswing.GraphDb;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 19:55
+ */
+public class QueryPlannerTest {
+
+  private GraphDb db;
+  private QueryPlanner planner;
+
+  @Before
+  public void setUp() throws Exception {
+    TinkerGraph graph = new TinkerGraph();
+    graph.createKeyIndex("type", Vertex.class);
+    for (int i = 0; i < 100; i++) {
+      Vertex v = graph.addVertex(String.valueOf(i));
+      v.setProperty("type", i % 10 == 0 ? "customer" : "supplier");
+      v.setProperty("age", i);
+      v.setProperty("name", (i % 2 == 0 ? "Jo " : "Al ") + i);
+    }
+    db = new GraphDb(graph);
+    planner = new QueryPlanner(db);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    db.shutdown();
+  }
+
+  @Test
+  public void testKeyIndex() throws Exception {
+    QueryPlanner.Plan plan = planner.plan(QueryParser.parse("type = customer"), Vertex.class);
+    assertFalse(plan.isFullScan());
+    assertEquals(ids(0, 10, 20, 30, 40, 50, 60, 70, 80, 90), execute(plan));
+
+    plan = planner.plan(QueryParser.parse("age >= 30 and type = customer and age < 60"), Vertex.class);
+    assertFalse(plan.isFullScan());
+    assertEquals(ids(30, 40, 50), execute(plan));
+  }
+
+  @Test
+  public void testFullScan() throws Exception {
+    QueryPlanner.Plan plan = planner.plan(QueryParser.parse("age > 96"), Vertex.class);
+    assertTrue(plan.isFullScan());
+    assertEquals(ids(97, 98, 99), execute(plan));
+
+    // a disjunction needs an index for every part
+    plan = planner.plan(QueryParser.parse("type = customer or age > 97"), Vertex.class);
+    assertTrue(plan.isFullScan());
+    assertEquals(ids(0, 10, 20, 30, 40, 50, 60, 70, 80, 90, 98, 99), execute(plan));
+  }
+
+  @Test
+  public void testPropertyIndex() throws Exception {
+    PropertyIndex index = db.getPropertyIndex();
+    index.start();
+    long timeout = System.currentTimeMillis() + 10000;
+    while (!index.isComplete() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(20);
+    }
+    assertTrue(index.isComplete());
+
+    QueryPlanner.Plan plan = planner.plan(QueryParser.parse("name = Al* and age < 10"), Vertex.class);
+    assertFalse(plan.isFullScan());
+    assertEquals(ids(1, 3, 5, 7, 9), execute(plan));
+
+    plan = planner.plan(QueryParser.parse("type = customer or name = \"Al 11\""), Vertex.class);
+    assertFalse(plan.isFullScan());
+    assertEquals(ids(0, 10, 11, 20, 30, 40, 50, 60, 70, 80, 90), execute(plan));
+  }
+
+  private Set<Object> execute(QueryPlanner.Plan plan) {
+    Set<Object> ids = new HashSet<Object>();
+    GraphDb.Tx tx = db.beginTx();
+    try {
+      for (Element el : plan.execute(db)) {
+        assertTrue("Duplicate result " + el, ids.add(el.getId()));
+      }
+      tx.success();
+    } finally {
+      tx.finish();
+    }
+    return ids;
+  }
+
+  private static Set<Object> ids(int... ids) {
+    Set<Object> set = new HashSet<Object>();
+    for (int id : ids) {
+      set.add(String.valueOf(id));
+    }
+    return set;
+  }
+}
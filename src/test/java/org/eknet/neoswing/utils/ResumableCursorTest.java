@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 Eike Kettner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.eknet.neoswing.utils;
+
+import org.eknet.neoswing.GraphDb;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:eike.kettner@gmail.com">Eike Kettner</a>
+ * @since 19.10.26 20:30
+ */
+public class ResumableCursorTest {
+
+  @Test
+  public void testPages() throws Exception {
+    Source source = new Source(7);
+    ResumableCursor<Integer> cursor = new ResumableCursor<Integer>(source);
+    assertEquals(Arrays.asList(0, 1, 2), cursor.next(null, 3));
+    assertEquals(Arrays.asList(3, 4, 5), cursor.next(null, 3));
+    assertTrue(cursor.hasMore());
+    assertEquals(Arrays.asList(6), cursor.next(null, 3));
+    assertFalse(cursor.hasMore());
+    assertEquals(7, cursor.getPosition());
+    assertTrue(cursor.next(null, 3).isEmpty());
+    assertEquals(1, source.opened);
+  }
+
+  @Test
+  public void testExhaustedOnFullPage() throws Exception {
+    ResumableCursor<Integer> cursor = new ResumableCursor<Integer>(new Source(4));
+    assertEquals(4, cursor.next(null, 4).size());
+    assertFalse(cursor.hasMore());
+  }
+
+  @Test
+  public void testReopensInvalidIterator() throws Exception {
+    Source source = new Source(10);
+    ResumableCursor<Integer> cursor = new ResumableCursor<Integer>(source);
+    assertEquals(Arrays.asList(0, 1, 2, 3), cursor.next(null, 4));
+    source.failAt = 5;
+    assertEquals(Arrays.asList(4, 5, 6, 7), cursor.next(null, 4));
+    assertEquals(Arrays.asList(8, 9), cursor.next(null, 4));
+    assertEquals(2, source.opened);
+    assertEquals(10, cursor.getPosition());
+  }
+
+  /**
+   * Returns the numbers {@code 0..size-1}. An iterator fails once when it
+   * reaches {@link #failAt}, like iterators of a finished transaction.
+   */
+  private static class Source implements Function<GraphDb, Iterable<Integer>> {
+    private final List<Integer> elements = new ArrayList<Integer>();
+    private int opened;
+    private int failAt = -1;
+
+    private Source(int size) {
+      for (int i = 0; i < size; i++) {
+        elements.add(i);
+      }
+    }
+
+    @Override
+    public Iterable<Integer> apply(GraphDb db) {
+      opened++;
+      final Iterator<Integer> iter = elements.iterator();
+      return new Iterable<Integer>() {
+        @Override
+        public Iterator<Integer> iterator() {
+          return new Iterator<Integer>() {
+            private int pos;
+
+            @Override
+            public boolean hasNext() {
+              return iter.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+              if (pos == failAt) {
+                failAt = -1;
+                throw new ConcurrentModificationException();
+              }
+              pos++;
+              return iter.next();
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+  }
+}